@@ -0,0 +1,45 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures extracting the AST from an already built parse tree with {@link ASTListener}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ASTBuilderBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private ParseTree parseTree;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        String text = Stylesheets.load(stylesheet);
+        parseTree = new ICSSParser(new CommonTokenStream(new ICSSLexer(CharStreams.fromString(text)))).stylesheet();
+    }
+
+    @Benchmark
+    public AST buildAST() {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parseTree);
+        return listener.getAST();
+    }
+}
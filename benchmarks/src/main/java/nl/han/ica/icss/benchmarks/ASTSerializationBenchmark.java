@@ -0,0 +1,51 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.serialization.ASTSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a serialized AST with {@link ASTSerializer} against parsing
+ * the source text again, and measures the cost of serializing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ASTSerializationBenchmark {
+
+    @Param({"level3", "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private String text;
+    private AST ast;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = Stylesheets.load(stylesheet);
+        ast = Stylesheets.parse(text);
+        serialized = ASTSerializer.toBytes(ast);
+    }
+
+    @Benchmark
+    public AST parse() {
+        return Stylesheets.parse(text);
+    }
+
+    @Benchmark
+    public AST deserialize() throws IOException {
+        return ASTSerializer.fromBytes(serialized);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return ASTSerializer.toBytes(ast);
+    }
+}
@@ -0,0 +1,39 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures type checking a parsed AST. All inputs are valid, so checking
+ * leaves the AST untouched and it can be reused across invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class CheckerBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private final Checker checker = new Checker();
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+    }
+
+    @Benchmark
+    public AST check() {
+        checker.check(ast);
+        return ast;
+    }
+}
@@ -0,0 +1,60 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.transforms.ConstantFolding;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating a checked AST directly with folding its constant
+ * expressions first, on arithmetic-heavy stylesheets. Both rewrite the AST in
+ * place, so like {@link EvaluatorBenchmark} this runs in single-shot mode on a
+ * freshly parsed copy per iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ConstantFoldingBenchmark {
+
+    @Param({"level3", "declarations-100000", "declarations-1000000", "arithmetic-100", "arithmetic-1000"})
+    public String stylesheet;
+
+    private final Evaluator evaluator = new Evaluator();
+    private final ConstantFolding folding = new ConstantFolding();
+    private String text;
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void load() {
+        text = Stylesheets.load(stylesheet);
+    }
+
+    @Setup(Level.Iteration)
+    public void parse() {
+        ast = Stylesheets.parse(text);
+    }
+
+    @Benchmark
+    public AST evaluate() {
+        evaluator.apply(ast);
+        return ast;
+    }
+
+    @Benchmark
+    public AST foldAndEvaluate() {
+        folding.apply(ast);
+        evaluator.apply(ast);
+        return ast;
+    }
+
+    @Benchmark
+    public AST fold() {
+        folding.apply(ast);
+        return ast;
+    }
+}
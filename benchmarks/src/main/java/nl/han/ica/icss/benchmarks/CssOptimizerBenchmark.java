@@ -0,0 +1,52 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.CssOptimizer;
+import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.transforms.SizeReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of optimizing the CSS on top of evaluating and generating
+ * it. The checked AST is evaluated into a new AST on every invocation, so the
+ * optimizer always starts from unoptimized rules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class CssOptimizerBenchmark {
+
+    @Param({"level3", "declarations-10000", "declarations-100000", "nested-if-50"})
+    public String stylesheet;
+
+    private final Evaluator evaluator = new Evaluator();
+    private final CssOptimizer optimizer = new CssOptimizer();
+    private final Generator generator = new Generator();
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+        SizeReport report = new SizeReport();
+        optimizer.optimize(evaluator.transform(ast), report);
+        System.out.println("Size report: " + report);
+    }
+
+    @Benchmark
+    public String transformAndGenerate() {
+        return generator.generate(evaluator.transform(ast));
+    }
+
+    @Benchmark
+    public String transformOptimizeAndGenerate() {
+        AST evaluated = evaluator.transform(ast);
+        optimizer.apply(evaluated);
+        return generator.generate(evaluated);
+    }
+}
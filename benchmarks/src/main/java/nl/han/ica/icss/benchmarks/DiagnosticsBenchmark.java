@@ -0,0 +1,53 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.scoping.ScopeManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking an AST and listing its errors, either by walking the tree
+ * for errors on its nodes afterwards or from the diagnostics the checker
+ * returns. Checking again records the same errors, so the AST is reused across
+ * invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class DiagnosticsBenchmark {
+
+    @Param({"declarations-100000", "declarations-1000000", "errors-100000", "errors-1000000"})
+    public String stylesheet;
+
+    private final Checker checker = new Checker();
+    private final Checker diagnosticsOnly = new Checker(ScopeManager::new, false);
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+    }
+
+    @Benchmark
+    public List<SemanticError> checkThenWalkTree() {
+        checker.check(ast);
+        return ast.getErrors();
+    }
+
+    @Benchmark
+    public List<SemanticError> checkWithDiagnostics() {
+        return checker.check(ast).getErrors();
+    }
+
+    @Benchmark
+    public List<SemanticError> checkWithDiagnosticsOnly() {
+        return diagnosticsOnly.check(ast).getErrors();
+    }
+}
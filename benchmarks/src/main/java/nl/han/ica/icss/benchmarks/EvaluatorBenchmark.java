@@ -0,0 +1,46 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluating a checked AST. The evaluator rewrites the AST in place,
+ * so this runs in single-shot mode on a freshly parsed copy per iteration;
+ * parsing is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class EvaluatorBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private final Evaluator evaluator = new Evaluator();
+    private String text;
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void load() {
+        text = Stylesheets.load(stylesheet);
+    }
+
+    @Setup(Level.Iteration)
+    public void parse() {
+        ast = Stylesheets.parse(text);
+    }
+
+    @Benchmark
+    public AST evaluate() {
+        evaluator.apply(ast);
+        return ast;
+    }
+}
@@ -0,0 +1,54 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a file read into a {@code String} against parsing it from a
+ * memory-mapped buffer with {@link Pipeline#parseFile(Path)}. Run with
+ * {@code -prof gc} to compare the bytes allocated per parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class FileInputBenchmark {
+
+    @Param({"level3", "declarations-10000", "declarations-100000", "declarations-1000000"})
+    public String stylesheet;
+
+    private Path file;
+    private Pipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("benchmark", ".icss");
+        Files.writeString(file, Stylesheets.load(stylesheet));
+        pipeline = new Pipeline();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public AST readString() throws IOException {
+        pipeline.parseString(Files.readString(file));
+        return pipeline.getAST();
+    }
+
+    @Benchmark
+    public AST mapped() throws IOException {
+        pipeline.parseFile(file);
+        return pipeline.getAST();
+    }
+}
@@ -0,0 +1,74 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.flat.FlatAST;
+import nl.han.ica.icss.flat.FlatChecker;
+import nl.han.ica.icss.flat.FlatEvaluator;
+import nl.han.ica.icss.flat.FlatGenerator;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the checker, evaluator and generator on {@code ASTNode}s against
+ * their variants on a {@link FlatAST}. Both evaluators leave their input
+ * untouched, so every invocation starts from the same checked AST. Run with
+ * {@code -prof gc} to compare the allocation rate as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class FlatASTBenchmark {
+
+    private static final Checker CHECKER = new Checker();
+    private static final Evaluator EVALUATOR = new Evaluator();
+    private static final Generator GENERATOR = new Generator();
+    private static final FlatChecker FLAT_CHECKER = new FlatChecker();
+    private static final FlatEvaluator FLAT_EVALUATOR = new FlatEvaluator();
+    private static final FlatGenerator FLAT_GENERATOR = new FlatGenerator();
+
+    @Param({"level3", "declarations-100000", "declarations-1000000", "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private AST ast;
+    private FlatAST flat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+        flat = FlatAST.fromAST(ast);
+    }
+
+    @Benchmark
+    public AST checkObjects() {
+        CHECKER.check(ast);
+        return ast;
+    }
+
+    @Benchmark
+    public FlatAST checkFlat() {
+        FLAT_CHECKER.check(flat);
+        return flat;
+    }
+
+    @Benchmark
+    public String transformAndGenerateObjects() {
+        return GENERATOR.generate(EVALUATOR.transform(ast));
+    }
+
+    @Benchmark
+    public String transformAndGenerateFlat() {
+        return FLAT_GENERATOR.generate(FLAT_EVALUATOR.transform(flat));
+    }
+
+    @Benchmark
+    public FlatAST convertToFlat() {
+        return FlatAST.fromAST(ast);
+    }
+}
@@ -0,0 +1,39 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating CSS from an evaluated AST.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class GeneratorBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private final Generator generator = new Generator();
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void evaluate() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+        new Evaluator().apply(ast);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate(ast);
+    }
+}
@@ -0,0 +1,36 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.parser.ICSSLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures tokenizing the input with the generated {@link ICSSLexer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class LexerBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void load() {
+        text = Stylesheets.load(stylesheet);
+    }
+
+    @Benchmark
+    public int lex() {
+        return new ICSSLexer(CharStreams.fromString(text)).getAllTokens().size();
+    }
+}
@@ -0,0 +1,48 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking the style rules concurrently on a fork-join pool of the
+ * given size. Compare with {@link CheckerBenchmark} for the sequential check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ParallelCheckerBenchmark {
+
+    @Param({"level3", "declarations-10000", "declarations-100000", "declarations-1000000", "nested-if-50"})
+    public String stylesheet;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private final Checker checker = new Checker();
+    private ForkJoinPool pool;
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public AST check() {
+        checker.check(ast, pool);
+        return ast;
+    }
+}
@@ -0,0 +1,66 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ParallelRuleCompiler;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how evaluating and generating scales with the number of threads of
+ * a {@link ParallelRuleCompiler}, against the sequential {@link Evaluator} and
+ * {@link Generator}. The globals input has as many global variables as rules,
+ * which are evaluated once, before the rules are split up. Evaluation rewrites the AST in place, so a fresh AST is
+ * parsed before every invocation, outside of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ParallelRuleBenchmark {
+
+    @Param({"declarations-100000", "declarations-1000000", "nested-if-50", "globals-100000"})
+    public String stylesheet;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private final Evaluator evaluator = new Evaluator();
+    private final Generator generator = new Generator();
+    private final ParallelRuleCompiler compiler = new ParallelRuleCompiler();
+    private String text;
+    private ForkJoinPool pool;
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = Stylesheets.load(stylesheet);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        ast = Stylesheets.parse(text);
+    }
+
+    @Benchmark
+    public String sequential() {
+        evaluator.apply(ast);
+        return generator.generate(ast);
+    }
+
+    @Benchmark
+    public String parallel() {
+        return compiler.transformAndGenerate(ast, pool);
+    }
+}
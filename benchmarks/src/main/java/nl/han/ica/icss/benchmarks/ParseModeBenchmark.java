@@ -0,0 +1,56 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ParseTimeASTBuilder;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the parse tree and walking it with an {@link ASTListener}
+ * against building the AST while parsing with a {@link ParseTimeASTBuilder}.
+ * Both start from an already lexed token list. Run with {@code -prof gc} to
+ * compare the allocation rate as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ParseModeBenchmark {
+
+    @Param({"level3", "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private List<? extends Token> tokens;
+
+    @Setup(Level.Trial)
+    public void lex() {
+        tokens = new ICSSLexer(CharStreams.fromString(Stylesheets.load(stylesheet))).getAllTokens();
+    }
+
+    @Benchmark
+    public AST parseTree() {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parser.stylesheet());
+        return listener.getAST();
+    }
+
+    @Benchmark
+    public AST whileParsing() {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        return new ParseTimeASTBuilder().build(parser);
+    }
+}
@@ -0,0 +1,42 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the ANTLR parse tree from an already lexed token list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ParserBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private List<? extends Token> tokens;
+
+    @Setup(Level.Trial)
+    public void lex() {
+        tokens = new ICSSLexer(CharStreams.fromString(Stylesheets.load(stylesheet))).getAllTokens();
+    }
+
+    @Benchmark
+    public ParseTree parse() {
+        return new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens))).stylesheet();
+    }
+}
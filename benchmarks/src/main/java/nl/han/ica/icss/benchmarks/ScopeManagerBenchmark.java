@@ -0,0 +1,65 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.scoping.FlatScopeManager;
+import nl.han.ica.icss.scoping.IScopeManager;
+import nl.han.ica.icss.scoping.ScopeManager;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the map-per-scope {@link ScopeManager} with the {@link FlatScopeManager}
+ * when checking and when evaluating. Evaluation rewrites the AST in place, so the
+ * stylesheet is parsed again before every evaluation and that time is included;
+ * compare the two {@code scopes} values of {@code evaluate} with each other only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class ScopeManagerBenchmark {
+
+    @Param({"level3", "declarations-100000", "nested-if-10", "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    @Param({"map", "flat"})
+    public String scopes;
+
+    private String text;
+    private AST checkedAst;
+    private Checker checker;
+    private Evaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = Stylesheets.load(stylesheet);
+        checkedAst = Stylesheets.parse(text);
+        checker = new Checker(this.<ExpressionType>factory());
+        evaluator = new Evaluator(this.<Expression>factory());
+    }
+
+    private <T> Supplier<IScopeManager<T>> factory() {
+        return scopes.equals("flat") ? FlatScopeManager::new : ScopeManager::new;
+    }
+
+    @Benchmark
+    public AST check() {
+        checker.check(checkedAst);
+        return checkedAst;
+    }
+
+    @Benchmark
+    public AST evaluate() {
+        AST ast = Stylesheets.parse(text);
+        evaluator.apply(ast);
+        return ast;
+    }
+}
@@ -0,0 +1,227 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark inputs: the bundled example stylesheets and synthetic ones.
+ *
+ * <p>Inputs are named by the {@code @Param} values of the benchmarks:</p>
+ * <ul>
+ *   <li>{@code level0} .. {@code level3}: the examples bundled with ICSSTool</li>
+ *   <li>{@code declarations-N}: rules of ten mixed declarations, N declarations in total</li>
+ *   <li>{@code nested-if-N}: rules containing if/else clauses nested N deep</li>
+ *   <li>{@code arithmetic-N}: rules whose declarations are chains of N operands</li>
+ *   <li>{@code globals-N}: N global variables, each declared from the one before it, and a rule using each of them</li>
+ * </ul>
+ */
+public final class Stylesheets {
+
+    private static final int DECLARATIONS_PER_RULE = 10;
+    private static final int NESTED_IF_RULES = 100;
+    private static final int ARITHMETIC_RULES = 100;
+
+    private Stylesheets() {
+    }
+
+    /**
+     * Returns the source text of the named input.
+     */
+    public static String load(String name) {
+        if (name.startsWith("level")) {
+            return resource(name + ".icss");
+        }
+        int dash = name.lastIndexOf('-');
+        int size = Integer.parseInt(name.substring(dash + 1));
+        return switch (name.substring(0, dash)) {
+            case "declarations" -> declarations(size);
+            case "nested-if" -> nestedIfs(size);
+            case "arithmetic" -> arithmeticChains(size);
+            case "errors" -> errors(size);
+            case "globals" -> globals(size);
+            default -> throw new IllegalArgumentException("Unknown stylesheet: " + name);
+        };
+    }
+
+    /**
+     * Parses the source text into an unchecked AST.
+     *
+     * @throws IllegalArgumentException if the text has syntax errors, or the
+     *                                  parser stops before the end of it
+     */
+    public static AST parse(String text) {
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(text));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(SyntaxErrors.INSTANCE);
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(SyntaxErrors.INSTANCE);
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parser.stylesheet());
+        Token next = parser.getCurrentToken();
+        if (next.getType() != Token.EOF) {
+            throw new IllegalArgumentException("Unparsed input at " + next.getLine() + ":" + next.getCharPositionInLine());
+        }
+        return listener.getAST();
+    }
+
+    /**
+     * Generates a stylesheet of rules with ten declarations each, mixing literals,
+     * global variable references and additive and multiplicative operations.
+     */
+    public static String declarations(int count) {
+        StringBuilder sheet = new StringBuilder(count * 24);
+        sheet.append("Width := 100px;\nMain := #336699;\nRatio := 25%;\n\n");
+        for (int rule = 0; rule * DECLARATIONS_PER_RULE < count; rule++) {
+            sheet.append(selector(rule)).append(" {\n");
+            int declarations = Math.min(DECLARATIONS_PER_RULE, count - rule * DECLARATIONS_PER_RULE);
+            for (int i = 0; i < declarations; i++) {
+                sheet.append("  ").append(declaration(rule, i)).append('\n');
+            }
+            sheet.append("}\n");
+        }
+        return sheet.toString();
+    }
+
+    /**
+     * Generates rules that each contain if/else clauses nested to the given depth.
+     */
+    public static String nestedIfs(int depth) {
+        StringBuilder sheet = new StringBuilder();
+        sheet.append("Flag := TRUE;\nOff := FALSE;\n\n");
+        for (int rule = 0; rule < NESTED_IF_RULES; rule++) {
+            sheet.append(selector(rule)).append(" {\n");
+            for (int level = 0; level < depth; level++) {
+                sheet.append("if[").append(level % 2 == 0 ? "Flag" : "Off").append("] {\n");
+                sheet.append("width: ").append(level + 1).append("px;\n");
+            }
+            for (int level = depth - 1; level >= 0; level--) {
+                sheet.append("} else {\n").append("height: ").append(level + 1).append("px;\n}\n");
+            }
+            sheet.append("}\n");
+        }
+        return sheet.toString();
+    }
+
+    /**
+     * Generates rules whose declarations are arithmetic chains of the given length.
+     */
+    public static String arithmeticChains(int length) {
+        StringBuilder sheet = new StringBuilder();
+        sheet.append("Base := 10px;\n\n");
+        for (int rule = 0; rule < ARITHMETIC_RULES; rule++) {
+            sheet.append(selector(rule)).append(" {\n  width: Base");
+            for (int i = 1; i < length; i++) {
+                switch (i % 3) {
+                    case 0 -> sheet.append(" + ").append(i).append("px");
+                    case 1 -> sheet.append(" - ").append(i % 7).append("px");
+                    default -> sheet.append(" + 2 * ").append(i % 5).append("px");
+                }
+            }
+            sheet.append(";\n}\n");
+        }
+        return sheet.toString();
+    }
+
+    /**
+     * Generates rules with ten declarations each, all of which the checker rejects:
+     * unknown variables and properties, mismatched operands and values of the wrong type.
+     */
+    public static String errors(int count) {
+        StringBuilder sheet = new StringBuilder(count * 24);
+        sheet.append("Width := 100px;\nMain := #336699;\n\n");
+        for (int rule = 0; rule * DECLARATIONS_PER_RULE < count; rule++) {
+            sheet.append(selector(rule)).append(" {\n");
+            int declarations = Math.min(DECLARATIONS_PER_RULE, count - rule * DECLARATIONS_PER_RULE);
+            for (int i = 0; i < declarations; i++) {
+                sheet.append("  ").append(invalidDeclaration(rule, i)).append('\n');
+            }
+            sheet.append("}\n");
+        }
+        return sheet.toString();
+    }
+
+    /**
+     * Generates global variables that are each declared from the one before
+     * it, followed by a rule for every global that uses it.
+     */
+    public static String globals(int count) {
+        StringBuilder sheet = new StringBuilder(count * 48);
+        sheet.append("V0 := 10px;\n");
+        for (int global = 1; global <= count; global++) {
+            sheet.append('V').append(global).append(" := V").append(global - 1).append(" + ").append(global % 20).append("px;\n");
+        }
+        sheet.append('\n');
+        for (int rule = 1; rule <= count; rule++) {
+            sheet.append(selector(rule)).append(" {\n  width: V").append(rule)
+                    .append(";\n  height: V").append(rule).append(" * 2;\n}\n");
+        }
+        return sheet.toString();
+    }
+
+    private static String selector(int rule) {
+        return switch (rule % 3) {
+            case 0 -> "div" + rule;
+            case 1 -> ".class-" + rule;
+            default -> "#id-" + rule;
+        };
+    }
+
+    private static String declaration(int rule, int i) {
+        return switch (i) {
+            case 0 -> "width: " + (rule % 500) + "px;";
+            case 1 -> "height: Width + " + (rule % 50) + "px;";
+            case 2 -> "color: #" + String.format("%06x", rule % 0xffffff) + ";";
+            case 3 -> "background-color: Main;";
+            case 4 -> "width: Ratio * 2;";
+            case 5 -> "height: 3 * Width - 20px;";
+            case 6 -> "width: " + (rule % 100) + "%;";
+            case 7 -> "color: Main;";
+            case 8 -> "height: Width * 2 + Width;";
+            default -> "background-color: #ffffff;";
+        };
+    }
+
+    private static String invalidDeclaration(int rule, int i) {
+        return switch (i % 5) {
+            case 0 -> "width: Missing" + (rule % 50) + ";";
+            case 1 -> "height: Width + 10%;";
+            case 2 -> "width: Width * Width;";
+            case 3 -> "color: " + (rule % 500) + "px;";
+            default -> "margin: Main;";
+        };
+    }
+
+    private static final class SyntaxErrors extends BaseErrorListener {
+        static final SyntaxErrors INSTANCE = new SyntaxErrors();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            throw new IllegalArgumentException("Syntax error at " + line + ":" + charPositionInLine + ": " + msg);
+        }
+    }
+
+    private static String resource(String file) {
+        try (InputStream in = Stylesheets.class.getClassLoader().getResourceAsStream(file)) {
+            if (in == null) throw new IllegalArgumentException("Missing resource: " + file);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares walking the whole AST through {@link ASTNode#getChildren()}, which
+ * copies the children into a new list at most nodes, with the indexed
+ * {@link ASTNode#childCount()}/{@link ASTNode#childAt(int)} traversal.
+ * Run with {@code -prof gc} to see the allocation rate of both.
+ *
+ * <p>{@code errors} and {@code prettyPrint} measure the two AST walkers that
+ * were migrated to the indexed traversal.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class TraversalBenchmark {
+
+    @Param({"level3", "declarations-100000", "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    private AST ast;
+
+    @Setup(Level.Trial)
+    public void parse() {
+        ast = Stylesheets.parse(Stylesheets.load(stylesheet));
+    }
+
+    @Benchmark
+    public int getChildren() {
+        return countWithLists(ast.root);
+    }
+
+    @Benchmark
+    public int childAt() {
+        return countIndexed(ast.root);
+    }
+
+    @Benchmark
+    public int errors() {
+        return ast.getErrors().size();
+    }
+
+    @Benchmark
+    public int prettyPrint() {
+        return ast.toString().length();
+    }
+
+    private static int countWithLists(ASTNode node) {
+        int count = 1;
+        for (ASTNode child : node.getChildren()) {
+            count += countWithLists(child);
+        }
+        return count;
+    }
+
+    private static int countIndexed(ASTNode node) {
+        int count = 1;
+        for (int i = 0, n = node.childCount(); i < n; i++) {
+            count += countIndexed(node.childAt(i));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,51 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing with full LL prediction against parsing with SLL first and
+ * falling back to LL on a syntax error. Includes lexing, as the pipeline lexes
+ * on demand while parsing. All inputs are valid, so the second stage never runs;
+ * the fallback counters are printed after each trial to confirm that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+public class TwoStageParsingBenchmark {
+
+    @Param({"level0", "level1", "level2", "level3",
+            "declarations-10000", "declarations-100000", "declarations-1000000",
+            "nested-if-50", "arithmetic-1000"})
+    public String stylesheet;
+
+    @Param({"ll", "sll-then-ll"})
+    public String prediction;
+
+    private String text;
+    private Pipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = Stylesheets.load(stylesheet);
+        pipeline = new Pipeline();
+        pipeline.setTwoStageParsing(prediction.equals("sll-then-ll"));
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println("Parse metrics: " + Pipeline.parseMetrics());
+    }
+
+    @Benchmark
+    public AST parse() {
+        pipeline.parseString(text);
+        return pipeline.getAST();
+    }
+}
@@ -0,0 +1,36 @@
+package nl.han.ica.icss;
+
+import java.util.List;
+
+/**
+ * Outcome of running all pipeline stages on a single input.
+ *
+ * <p>A successful result carries the generated CSS and no errors; a failed
+ * result carries the syntax or semantic errors and no CSS. When the CSS was
+ * streamed straight to an output, a successful result carries no CSS either.</p>
+ *
+ * @param css    the generated CSS, or {@code null} when compilation failed or the CSS was streamed
+ * @param errors the errors reported by the failing stage, empty on success
+ */
+public record CompilationResult(String css, List<String> errors) {
+
+    public CompilationResult {
+        errors = List.copyOf(errors);
+    }
+
+    public static CompilationResult succeeded(String css) {
+        return new CompilationResult(css, List.of());
+    }
+
+    public static CompilationResult streamed() {
+        return new CompilationResult(null, List.of());
+    }
+
+    public static CompilationResult failed(List<String> errors) {
+        return new CompilationResult(null, errors);
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+}
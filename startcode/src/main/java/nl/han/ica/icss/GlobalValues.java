@@ -0,0 +1,110 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.scoping.IScopeManager;
+import nl.han.ica.icss.transforms.Evaluator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The evaluated values of the global variables of a stylesheet.
+ *
+ * <p>The global variables of a checked stylesheet are all declared before its
+ * first style rule, and never twice, so every rule sees the same values. They
+ * are evaluated once, and the table is only read afterwards.</p>
+ */
+final class GlobalValues {
+
+    private final Map<String, Expression> values = new HashMap<>();
+
+    /**
+     * Evaluates the global variable assignments of a checked stylesheet once, in order.
+     *
+     * @param assignments the top-level variable assignments, in source order
+     */
+    static GlobalValues evaluate(List<VariableAssignment> assignments) {
+        GlobalValues globals = new GlobalValues();
+        new Evaluator(globals::recorder).apply(new AST(new StyleSheet(new ArrayList<>(assignments))));
+        return globals;
+    }
+
+    /**
+     * Returns scopes for evaluating style rules: the scopes come from the given
+     * manager, and names that are not declared in them resolve to the globals.
+     */
+    IScopeManager<Expression> scopesFor(IScopeManager<Expression> locals) {
+        return new IScopeManager<>() {
+            @Override
+            public void enterScope() {
+                locals.enterScope();
+            }
+
+            @Override
+            public void exitScope() {
+                locals.exitScope();
+            }
+
+            @Override
+            public void declare(String name, Expression value) {
+                locals.declare(name, value);
+            }
+
+            @Override
+            public boolean declareIfAbsent(String name, Expression value) {
+                return locals.declareIfAbsent(name, value);
+            }
+
+            @Override
+            public Expression resolve(String name) {
+                //The evaluator never declares null values, so null means not declared locally
+                Expression value = locals.resolve(name);
+                return value != null ? value : values.get(name);
+            }
+
+            @Override
+            public void inNewScope(Runnable work) {
+                locals.inNewScope(work);
+            }
+        };
+    }
+
+    /**
+     * Scopes that put every declaration of the stylesheet scope in the table.
+     * Only stylesheets of variable assignments are evaluated with them, so
+     * there are no nested scopes.
+     */
+    private IScopeManager<Expression> recorder() {
+        return new IScopeManager<>() {
+            @Override
+            public void enterScope() {
+            }
+
+            @Override
+            public void exitScope() {
+            }
+
+            @Override
+            public void declare(String name, Expression value) {
+                values.put(name, value);
+            }
+
+            @Override
+            public boolean declareIfAbsent(String name, Expression value) {
+                return values.putIfAbsent(name, value) == null;
+            }
+
+            @Override
+            public Expression resolve(String name) {
+                return values.get(name);
+            }
+
+            @Override
+            public void inNewScope(Runnable work) {
+                work.run();
+            }
+        };
+    }
+}
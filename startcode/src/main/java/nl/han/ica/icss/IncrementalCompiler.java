@@ -0,0 +1,359 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.*;
+
+/**
+ * Recompiles successive versions of one stylesheet, redoing only the work
+ * for style rules that changed.
+ *
+ * <p>Each version is lexed and split into top-level segments (variable
+ * assignments and style rules) on token boundaries. A segment is identified
+ * by its token text, so whitespace-only edits change nothing. The generated
+ * CSS and errors of every style rule are cached by that identity, together
+ * with the global variables the rule references. A style rule is parsed,
+ * checked, evaluated and generated again only when its own text changed, or
+ * when a global variable it depends on (directly or through other globals)
+ * changed.</p>
+ *
+ * <p>Whenever the input does not split cleanly into segments, or a segment
+ * fails to parse on its own, the whole input is compiled by a regular
+ * {@link Pipeline} so that errors are reported exactly as before.</p>
+ *
+ * <p>Instances keep the state of the previous version and are not thread-safe.
+ * Use one compiler per document.</p>
+ */
+public class IncrementalCompiler {
+
+    private static final Checker CHECKER = new Checker();
+    private static final Evaluator EVALUATOR = new Evaluator();
+    private static final Generator GENERATOR = new Generator();
+
+    /**
+     * Cached outcome of a single style rule.
+     *
+     * @param css          the generated CSS, or null if the rule had errors or was not evaluated
+     * @param errors       the semantic errors found in the rule
+     * @param dependencies the names of all variables referenced in the rule
+     */
+    private record RuleEntry(String css, List<String> errors, Set<String> dependencies) {
+        boolean isComplete() {
+            return css != null || !errors.isEmpty();
+        }
+    }
+
+    /**
+     * A top-level statement of the input, identified by its token text.
+     */
+    private record Segment(boolean isVariable, String name, String text) {
+    }
+
+    private Map<String, RuleEntry> rules = new HashMap<>();
+    private Map<String, Set<String>> dependents = new HashMap<>();
+    private Map<String, String> globalSignatures = new LinkedHashMap<>();
+    private List<VariableAssignment> globals = List.of();
+    private List<String> globalErrors = List.of();
+
+    private int reusedRules;
+    private int recompiledRules;
+
+    /**
+     * Compiles a new version of the stylesheet.
+     *
+     * @param input the full ICSS source text
+     * @return the generated CSS, or the errors of the first stage that failed
+     */
+    public CompilationResult compile(String input) {
+        reusedRules = 0;
+        recompiledRules = 0;
+
+        List<Segment> segments = split(input);
+        if (segments == null) {
+            return compileFully(input);
+        }
+
+        List<Segment> variables = segments.stream().filter(Segment::isVariable).toList();
+        Set<String> changed = updateGlobals(variables);
+        if (changed == null) {
+            return compileFully(input);
+        }
+        invalidate(changed);
+
+        Map<String, RuleEntry> nextRules = new HashMap<>();
+        List<String> errors = new ArrayList<>(globalErrors);
+        StringJoiner css = new StringJoiner("\n");
+
+        for (Segment segment : segments) {
+            if (segment.isVariable()) continue;
+
+            RuleEntry entry = nextRules.get(segment.text());
+            if (entry == null) {
+                entry = rules.get(segment.text());
+                if (entry != null && entry.isComplete()) {
+                    reusedRules++;
+                } else {
+                    entry = compileRule(segment.text());
+                    if (entry == null) {
+                        return compileFully(input);
+                    }
+                    recompiledRules++;
+                }
+                nextRules.put(segment.text(), entry);
+            } else {
+                reusedRules++;
+            }
+
+            errors.addAll(entry.errors());
+            if (entry.css() != null) {
+                css.add(entry.css());
+            }
+        }
+
+        rules = nextRules;
+        dependents = indexDependents(nextRules);
+
+        return errors.isEmpty() ? CompilationResult.succeeded(css.toString()) : CompilationResult.failed(errors);
+    }
+
+    /**
+     * Returns the number of style rules whose cached result was reused by the last compilation.
+     */
+    public int getReusedRules() {
+        return reusedRules;
+    }
+
+    /**
+     * Returns the number of style rules the last compilation had to compile again.
+     */
+    public int getRecompiledRules() {
+        return recompiledRules;
+    }
+
+    /**
+     * Splits the input into top-level segments, or returns null if the input
+     * contains lexer errors or does not have the shape of a stylesheet.
+     */
+    private List<Segment> split(String input) {
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(input));
+        ErrorFlag lexErrors = new ErrorFlag();
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(lexErrors);
+        List<? extends Token> tokens = lexer.getAllTokens();
+        if (lexErrors.raised) return null;
+
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        boolean seenRule = false;
+        boolean isVariable = false;
+        String name = null;
+        int depth = 0;
+
+        for (Token token : tokens) {
+            int type = token.getType();
+            if (text.isEmpty()) {
+                isVariable = type == ICSSLexer.CAPITAL_IDENT;
+                boolean isSelector = type == ICSSLexer.ID_IDENT || type == ICSSLexer.CLASS_IDENT
+                        || type == ICSSLexer.LOWER_IDENT;
+                if ((!isVariable && !isSelector) || (isVariable && seenRule)) return null;
+                seenRule |= isSelector;
+                name = token.getText();
+            } else {
+                text.append(' ');
+            }
+            text.append(token.getText());
+
+            boolean ends;
+            if (type == ICSSLexer.OPEN_BRACE) {
+                depth++;
+                ends = false;
+            } else if (type == ICSSLexer.CLOSE_BRACE) {
+                if (--depth < 0) return null;
+                ends = depth == 0 && !isVariable;
+            } else {
+                ends = depth == 0 && isVariable && type == ICSSLexer.SEMICOLON;
+            }
+
+            if (ends) {
+                segments.add(new Segment(isVariable, name, text.toString()));
+                text.setLength(0);
+            }
+        }
+        return text.isEmpty() ? segments : null;
+    }
+
+    /**
+     * Re-parses and re-checks the global variables if any of them changed.
+     *
+     * @return the names of all globals whose value may have changed, including
+     * globals that depend on them, or null if a variable failed to parse
+     */
+    private Set<String> updateGlobals(List<Segment> variables) {
+        Map<String, String> signatures = new LinkedHashMap<>();
+        for (Segment variable : variables) {
+            signatures.merge(variable.name(), variable.text(), (a, b) -> a + "\n" + b);
+        }
+        if (signatures.equals(globalSignatures)) {
+            return Set.of();
+        }
+
+        List<VariableAssignment> assignments = new ArrayList<>();
+        for (Segment variable : variables) {
+            AST parsed = parse(variable.text());
+            if (parsed == null) return null;
+            assignments.add((VariableAssignment) parsed.root.body.getFirst());
+        }
+
+        Set<String> changed = new HashSet<>();
+        Set<String> names = new HashSet<>(signatures.keySet());
+        names.addAll(globalSignatures.keySet());
+        for (String name : names) {
+            if (!Objects.equals(signatures.get(name), globalSignatures.get(name))) {
+                changed.add(name);
+            }
+        }
+        boolean grown;
+        do {
+            grown = false;
+            for (VariableAssignment assignment : assignments) {
+                if (!changed.contains(assignment.name.name)
+                        && !Collections.disjoint(referencedVariables(assignment.expression), changed)) {
+                    changed.add(assignment.name.name);
+                    grown = true;
+                }
+            }
+        } while (grown);
+
+        AST checked = new AST(new StyleSheet(new ArrayList<>(assignments)));
+        List<SemanticError> errors = CHECKER.check(checked).getErrors();
+
+        globals = assignments;
+        globalErrors = errors.stream().map(SemanticError::toString).toList();
+        globalSignatures = signatures;
+        return changed;
+    }
+
+    /**
+     * Drops the cached results of all rules that reference a changed variable.
+     */
+    private void invalidate(Set<String> changed) {
+        for (String name : changed) {
+            for (String rule : dependents.getOrDefault(name, Set.of())) {
+                rules.remove(rule);
+            }
+        }
+    }
+
+    /**
+     * Parses, checks, evaluates and generates a single style rule against the
+     * current globals.
+     *
+     * @return the outcome of the rule, or null if it failed to parse
+     */
+    private RuleEntry compileRule(String text) {
+        AST parsed = parse(text);
+        if (parsed == null) return null;
+        StyleRule rule = (StyleRule) parsed.root.body.getFirst();
+        Set<String> dependencies = referencedVariables(rule);
+
+        CHECKER.check(withGlobals(rule));
+        List<String> errors = new AST(new StyleSheet(new ArrayList<>(List.of(rule)))).getErrors()
+                .stream().map(SemanticError::toString).toList();
+        if (!errors.isEmpty() || !globalErrors.isEmpty()) {
+            return new RuleEntry(null, errors, dependencies);
+        }
+
+        AST evaluated = withGlobals(rule);
+        EVALUATOR.apply(evaluated);
+        return new RuleEntry(GENERATOR.generate(evaluated), errors, dependencies);
+    }
+
+    private AST withGlobals(StyleRule rule) {
+        ArrayList<ASTNode> body = new ArrayList<>(globals);
+        body.add(rule);
+        return new AST(new StyleSheet(body));
+    }
+
+    private static Map<String, Set<String>> indexDependents(Map<String, RuleEntry> rules) {
+        Map<String, Set<String>> index = new HashMap<>();
+        rules.forEach((text, entry) -> {
+            for (String name : entry.dependencies()) {
+                index.computeIfAbsent(name, k -> new HashSet<>()).add(text);
+            }
+        });
+        return index;
+    }
+
+    private static Set<String> referencedVariables(ASTNode node) {
+        Set<String> names = new HashSet<>();
+        collectReferences(node, names);
+        return names;
+    }
+
+    private static void collectReferences(ASTNode node, Set<String> names) {
+        if (node instanceof VariableReference ref) {
+            names.add(ref.name);
+        }
+        for (int i = 0, n = node.childCount(); i < n; i++) {
+            collectReferences(node.childAt(i), names);
+        }
+    }
+
+    /**
+     * Parses a single segment as a stylesheet of its own.
+     *
+     * @return the parsed AST, or null if the segment has syntax errors
+     */
+    private static AST parse(String text) {
+        ErrorFlag syntaxErrors = new ErrorFlag();
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(text));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(syntaxErrors);
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(syntaxErrors);
+        try {
+            ASTListener listener = new ASTListener();
+            new ParseTreeWalker().walk(listener, parser.stylesheet());
+            AST ast = listener.getAST();
+            return syntaxErrors.raised || ast.root.body.size() != 1 ? null : ast;
+        } catch (RecognitionException | ParseCancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compiles the whole input from scratch and forgets all cached results,
+     * since they can no longer be related to the input.
+     */
+    private CompilationResult compileFully(String input) {
+        rules = new HashMap<>();
+        dependents = new HashMap<>();
+        globalSignatures = new LinkedHashMap<>();
+        globals = List.of();
+        globalErrors = List.of();
+        reusedRules = 0;
+        recompiledRules = 0;
+        return new Pipeline().compile(input);
+    }
+
+    private static final class ErrorFlag extends BaseErrorListener {
+        private boolean raised;
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            raised = true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.scoping.ScopeManager;
+import nl.han.ica.icss.transforms.Evaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates and generates the style rules of a checked stylesheet concurrently.
+ *
+ * <p>The global variables of a checked stylesheet are all declared before its
+ * first style rule, so once they are known every rule evaluates and prints on
+ * its own. The global variable assignments are therefore evaluated once into a
+ * read-only {@link GlobalValues} table, and the style rules are cut into chunks
+ * of consecutive rules. Each chunk is evaluated as a stylesheet of its own, like
+ * {@link IncrementalCompiler} does for single rules, with names it does not
+ * declare itself resolved from the shared table, and generated into its own
+ * string. The strings are joined in source order, which gives exactly the
+ * output of the sequential {@link Evaluator} and {@link Generator}.</p>
+ *
+ * <p>Stylesheets with top-level statements other than leading variable
+ * assignments and style rules are evaluated and generated sequentially.</p>
+ */
+public class ParallelRuleCompiler {
+
+    /**
+     * Rules per chunk when none is given; enough work per task to keep the
+     * overhead of forking small.
+     */
+    public static final int DEFAULT_RULES_PER_CHUNK = 256;
+
+    private static final Evaluator EVALUATOR = new Evaluator();
+    private static final Generator GENERATOR = new Generator();
+
+    private final int rulesPerChunk;
+
+    public ParallelRuleCompiler() {
+        this(DEFAULT_RULES_PER_CHUNK);
+    }
+
+    /**
+     * @param rulesPerChunk the maximum number of style rules evaluated and generated by one task
+     */
+    public ParallelRuleCompiler(int rulesPerChunk) {
+        if (rulesPerChunk < 1) throw new IllegalArgumentException("rulesPerChunk must be positive");
+        this.rulesPerChunk = rulesPerChunk;
+    }
+
+    /**
+     * Evaluates the AST in place and generates its CSS, using the given pool.
+     * Afterwards the AST is the same as after {@link Evaluator#apply}.
+     *
+     * @param ast  a checked AST
+     * @param pool the pool to evaluate and generate the chunks on
+     * @return the generated CSS
+     */
+    public String transformAndGenerate(AST ast, ForkJoinPool pool) {
+        List<ASTNode> body = ast.root.body;
+        int globalCount = 0;
+        while (globalCount < body.size() && body.get(globalCount) instanceof VariableAssignment) {
+            globalCount++;
+        }
+        List<ASTNode> rules = body.subList(globalCount, body.size());
+        for (ASTNode child : rules) {
+            if (!(child instanceof StyleRule)) {
+                EVALUATOR.apply(ast);
+                return GENERATOR.generate(ast);
+            }
+        }
+        List<VariableAssignment> assignments = new ArrayList<>();
+        for (ASTNode child : body.subList(0, globalCount)) {
+            assignments.add((VariableAssignment) child);
+        }
+        GlobalValues globals = GlobalValues.evaluate(assignments);
+
+        List<ForkJoinTask<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < rules.size(); from += rulesPerChunk) {
+            ArrayList<ASTNode> chunk = new ArrayList<>(rules.subList(from, Math.min(from + rulesPerChunk, rules.size())));
+            chunks.add(pool.submit(compileChunk(globals, chunk)));
+        }
+
+        StringBuilder css = new StringBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i > 0) {
+                css.append("\n");
+            }
+            css.append(chunks.get(i).join());
+        }
+        //Like the evaluator, leave only the evaluated rules in the stylesheet
+        body.subList(0, globalCount).clear();
+        return css.toString();
+    }
+
+    /**
+     * Evaluates and generates a chunk of style rules.
+     */
+    private static ForkJoinTask<String> compileChunk(GlobalValues globals, ArrayList<ASTNode> body) {
+        return ForkJoinTask.adapt(() -> {
+            AST chunk = new AST(new StyleSheet(body));
+            new Evaluator(() -> globals.scopesFor(new ScopeManager<>())).apply(chunk);
+            return GENERATOR.generate(chunk);
+        });
+    }
+}
@@ -2,30 +2,92 @@ package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.Diagnostics;
 import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
 import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.AsciiByteCharStream;
 import nl.han.ica.icss.parser.ICSSLexer;
 import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ParseMetrics;
+import nl.han.ica.icss.parser.ParseTimeASTBuilder;
+import nl.han.ica.icss.scoping.ScopeManager;
+import nl.han.ica.icss.serialization.ASTSerializer;
+import nl.han.ica.icss.transforms.ConstantFolding;
+import nl.han.ica.icss.transforms.CssOptimizer;
 import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.transforms.SizeReport;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Pipeline implements ANTLRErrorListener {
 
+    /**
+     * Version of the compiler stages. Increment it whenever a change to the grammar,
+     * checker, evaluator or generator can change the output for the same input.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * How the AST is extracted from the parser.
+     */
+    public enum ParseMode {
+        /**
+         * Build the full ANTLR parse tree, then walk it with an {@link ASTListener}.
+         */
+        PARSE_TREE,
+        /**
+         * Build the AST while parsing with a {@link ParseTimeASTBuilder}, without
+         * a parse tree. Uses less memory and skips the second traversal.
+         */
+        WHILE_PARSING
+    }
+
+    //Checker and Evaluator are stateless, so all pipelines share them
+    private static final Checker CHECKER = new Checker();
+    private static final Checker DIAGNOSTICS_ONLY_CHECKER = new Checker(ScopeManager::new, false);
+    private static final Evaluator EVALUATOR = new Evaluator();
+    private static final ConstantFolding FOLDING = new ConstantFolding();
+    private static final CssOptimizer OPTIMIZER = new CssOptimizer();
+    private static final SizeReport SIZE_REPORT = new SizeReport();
+    private static final ParseMetrics METRICS = new ParseMetrics();
+    private static final ParallelRuleCompiler RULES = new ParallelRuleCompiler();
+
     private AST ast;
+    //The checked AST that non-destructive transforms start from
+    private AST checkedAST;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
+    private Diagnostics diagnostics = new Diagnostics();
+    //Whether the last check found errors that were not recorded on the nodes
+    private boolean errorsOnlyInDiagnostics = false;
+    private boolean constantFolding = false;
+    private ParseMode parseMode = ParseMode.PARSE_TREE;
+    private boolean twoStageParsing = true;
+    private boolean parallelChecking = false;
+    private boolean parallelRules = false;
+    private boolean nonDestructiveTransform = false;
+    private boolean errorsOnNodes = true;
+    private boolean optimizeOutput = false;
 
     public Pipeline() {
         errors = new ArrayList<>();
@@ -37,6 +99,15 @@ public class Pipeline implements ANTLRErrorListener {
     public List<String> getErrors() {
         return errors;
     }
+
+    /**
+     * The errors of the last check, with the nodes they belong to and their
+     * source positions. Empty if the AST has not been checked.
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
     public boolean isParsed() {
         return parsed;
     }
@@ -47,10 +118,155 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
+    /**
+     * Enables folding constant expressions before evaluation. This pays off for
+     * stylesheets that use the same variables and arithmetic in many rules.
+     */
+    public void setConstantFolding(boolean constantFolding) {
+        this.constantFolding = constantFolding;
+    }
+
+    public void setParseMode(ParseMode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    /**
+     * Enables parsing in two stages: first with SLL prediction, bailing out at
+     * the first syntax error, and only then again with full LL prediction and
+     * error recovery. Valid input is almost always parsed by the faster first
+     * stage. Enabled by default; the resulting AST and errors are the same.
+     */
+    public void setTwoStageParsing(boolean twoStageParsing) {
+        this.twoStageParsing = twoStageParsing;
+    }
+
+    /**
+     * Enables checking the style rules concurrently on the common fork-join
+     * pool. Pays off for stylesheets with many rules; reports the same errors.
+     */
+    public void setParallelChecking(boolean parallelChecking) {
+        this.parallelChecking = parallelChecking;
+    }
+
+    /**
+     * Enables evaluating and generating chunks of style rules concurrently on
+     * the common fork-join pool in {@link #compile(String)}, with a
+     * {@link ParallelRuleCompiler}. The CSS is the same as without it. As the
+     * rules are evaluated in place, this is not done with a
+     * {@linkplain #setNonDestructiveTransform non-destructive transform}.
+     */
+    public void setParallelRules(boolean parallelRules) {
+        this.parallelRules = parallelRules;
+    }
+
+    /**
+     * Enables transforming without modifying the checked AST: {@link #transform()}
+     * then evaluates the checked AST into a new one with {@link Evaluator#transform(AST)},
+     * which shares all unchanged subtrees with it. Transforming again starts
+     * from the checked AST, without parsing and checking it again. Constant
+     * folding is skipped in this mode, as it rewrites the AST in place.
+     */
+    public void setNonDestructiveTransform(boolean nonDestructiveTransform) {
+        this.nonDestructiveTransform = nonDestructiveTransform;
+    }
+
+    /**
+     * Sets whether the checker records errors on the nodes of the AST, as the
+     * GUI shows them there and {@link #saveAST} saves them with it. Enabled by
+     * default. Either way {@link #getErrors()} and {@link #getDiagnostics()}
+     * list the same errors, but an AST whose errors are not on its nodes
+     * cannot be saved.
+     */
+    public void setErrorsOnNodes(boolean errorsOnNodes) {
+        this.errorsOnNodes = errorsOnNodes;
+    }
+
+    /**
+     * Enables optimizing the evaluated AST with a {@link CssOptimizer} at the
+     * end of {@link #transform()}, which makes the generated CSS smaller. The
+     * savings of all pipelines are summed up in {@link #sizeReport()}. Style
+     * rules are then not compiled in parallel, as the optimizer needs all of them.
+     */
+    public void setOptimizeOutput(boolean optimizeOutput) {
+        this.optimizeOutput = optimizeOutput;
+    }
+
+    /**
+     * Counters of the two-stage parses of all pipelines.
+     */
+    public static ParseMetrics parseMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * The savings of the optimizer in all pipelines with {@link #setOptimizeOutput} enabled.
+     */
+    public static SizeReport sizeReport() {
+        return SIZE_REPORT;
+    }
+
     public void parseString(String input) {
+        parse(CharStreams.fromString(input));
+    }
+
+    /**
+     * Parses a file without reading it into a {@code String}: the file is
+     * memory-mapped and lexed byte by byte, as the grammar is pure ASCII.
+     *
+     * @param file the ICSS source file
+     * @throws IOException if the file cannot be mapped
+     */
+    public void parseFile(Path file) throws IOException {
+        parse(AsciiByteCharStream.map(file));
+    }
+
+    /**
+     * Saves the parsed AST, and whether it passed the checker, with the
+     * {@link ASTSerializer}. Errors found by the checker are saved with it.
+     *
+     * @throws IllegalStateException if the input did not parse, or the checker
+     *                               found errors without recording them on the
+     *                               nodes (see {@link #setErrorsOnNodes})
+     */
+    public void saveAST(DataOutput out) throws IOException {
+        if (!parsed) {
+            throw new IllegalStateException("Only a parsed AST can be saved");
+        }
+        if (errorsOnlyInDiagnostics) {
+            //Loading it would give an AST that is neither checked nor has errors
+            throw new IllegalStateException("The errors of the check are not on the nodes, so they cannot be saved");
+        }
+        out.writeBoolean(checked);
+        ASTSerializer.write(ast, out);
+    }
+
+    /**
+     * Loads an AST saved by {@link #saveAST} instead of parsing. Afterwards the
+     * pipeline is in the state it was saved in: parsed, and checked if the AST
+     * passed the checker, or with the checker's errors if it did not.
+     *
+     * @throws IOException if the input cannot be read, or was saved by another
+     *                     version of the serializer
+     */
+    public void loadAST(DataInput in) throws IOException {
+        boolean passed = in.readBoolean();
+        AST loaded = ASTSerializer.read(in);
+        errors.clear();
+        ast = loaded;
+        checkedAST = null;
+        diagnostics = Diagnostics.of(ast);
+        errorsOnlyInDiagnostics = false;
+        for (SemanticError e : diagnostics.getErrors()) {
+            errors.add(e.toString());
+        }
+        parsed = true;
+        checked = passed && errors.isEmpty();
+        transformed = false;
+    }
+
+    private void parse(CharStream inputStream) {
 
         //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
         ICSSLexer lexer = new ICSSLexer(inputStream);
         lexer.removeErrorListeners();
         lexer.addErrorListener(this);
@@ -61,16 +277,13 @@ public class Pipeline implements ANTLRErrorListener {
             //Parse (with Antlr's generated parser)
             ICSSParser parser = new ICSSParser(tokens);
             parser.removeErrorListeners();
-            parser.addErrorListener(this);
-
-            ParseTree parseTree = parser.stylesheet();
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
-
-            this.ast = listener.getAST();
+            if (twoStageParsing) {
+                this.ast = parseInTwoStages(parser);
+            } else {
+                parser.addErrorListener(this);
+                this.ast = extractAST(parser);
+            }
 
         } catch (RecognitionException e) {
             this.ast = new AST();
@@ -82,23 +295,77 @@ public class Pipeline implements ANTLRErrorListener {
         }
         parsed = errors.isEmpty();
         checked = transformed = false;
+        checkedAST = null;
+        diagnostics = new Diagnostics();
+        errorsOnlyInDiagnostics = false;
     }
+
+    private AST parseInTwoStages(ICSSParser parser) {
+        //Stage 1: SLL prediction, give up at the first syntax error
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        long start = System.nanoTime();
+        try {
+            AST result = extractAST(parser);
+            METRICS.recordSll(System.nanoTime() - start);
+            return result;
+        } catch (ParseCancellationException e) {
+            METRICS.recordSll(System.nanoTime() - start);
+        }
+
+        //Stage 2: rewind the tokens and parse with full LL and normal error reporting.
+        //The tokens stay buffered, so lexer errors are not reported twice.
+        parser.reset();
+        parser.addErrorListener(this);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        start = System.nanoTime();
+        try {
+            return extractAST(parser);
+        } finally {
+            METRICS.recordLlFallback(System.nanoTime() - start);
+        }
+    }
+
+    private AST extractAST(ICSSParser parser) {
+        if (parseMode == ParseMode.WHILE_PARSING) {
+            return new ParseTimeASTBuilder().build(parser);
+        }
+        ParseTree parseTree = parser.stylesheet();
+
+        //Extract AST from the Antlr parse tree
+        ASTListener listener = new ASTListener();
+        ParseTreeWalker walker = new ParseTreeWalker();
+        walker.walk(listener, parseTree);
+
+        return listener.getAST();
+    }
+
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+            //Check the AST the transform started from, not its result
+            if (checkedAST != null) {
+                ast = checkedAST;
+                checkedAST = null;
+            }
+
+           Checker checker = errorsOnNodes ? CHECKER : DIAGNOSTICS_ONLY_CHECKER;
+           if (parallelChecking) {
+               diagnostics = checker.check(this.ast, ForkJoinPool.commonPool());
+           } else {
+               diagnostics = checker.check(this.ast);
+           }
 
-            ArrayList<SemanticError> errors = this.ast.getErrors();
-            if (!errors.isEmpty()) {
-                for (SemanticError e : errors) {
-                    this.errors.add(e.toString());
-                }
+            for (SemanticError e : diagnostics.getErrors()) {
+                this.errors.add(e.toString());
             }
 
-            checked = errors.isEmpty();
+            checked = diagnostics.isEmpty();
+            errorsOnlyInDiagnostics = !errorsOnNodes && !checked;
             transformed = false;
-            return errors.isEmpty();
+            return diagnostics.isEmpty();
     }
 
     public void clearErrors(){
@@ -109,8 +376,20 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new Evaluator()).apply(ast);
-
+        if (nonDestructiveTransform) {
+            if (checkedAST == null) {
+                checkedAST = ast;
+            }
+            ast = EVALUATOR.transform(checkedAST);
+        } else {
+            if (constantFolding) {
+                FOLDING.apply(ast);
+            }
+            EVALUATOR.apply(ast);
+        }
+        if (optimizeOutput) {
+            OPTIMIZER.optimize(ast, SIZE_REPORT);
+        }
 
         transformed = errors.isEmpty();
     }
@@ -119,6 +398,100 @@ public class Pipeline implements ANTLRErrorListener {
         return generator.generate(ast);
     }
 
+    /**
+     * Generates the CSS straight into a channel as UTF-8, without building it as a String.
+     */
+    public void generate(WritableByteChannel out) throws IOException {
+        Generator generator = new Generator();
+        generator.generate(ast, out);
+    }
+
+    /**
+     * Runs parse, check, transform and generate on the input in one go.
+     * Used by the headless drivers, which have no use for the intermediate stages.
+     *
+     * @param input the ICSS source text
+     * @return the generated CSS, or the errors of the first stage that failed
+     */
+    public CompilationResult compile(String input) {
+        if (parallelRules && !optimizeOutput && !nonDestructiveTransform) {
+            return compileRulesInParallel(input);
+        }
+        if (!parseCheckAndTransform(input)) {
+            return CompilationResult.failed(errors);
+        }
+        return CompilationResult.succeeded(generate());
+    }
+
+    private CompilationResult compileRulesInParallel(String input) {
+        parseString(input);
+        if (!parsed || !check()) {
+            return CompilationResult.failed(errors);
+        }
+        if (constantFolding) {
+            FOLDING.apply(ast);
+        }
+        String css = RULES.transformAndGenerate(ast, ForkJoinPool.commonPool());
+        transformed = errors.isEmpty();
+        return CompilationResult.succeeded(css);
+    }
+
+    /**
+     * Like {@link #compile(String)}, but streams the generated CSS into the output
+     * file instead of returning it. The file is only created or replaced when
+     * compilation succeeds.
+     *
+     * @param input  the ICSS source text
+     * @param output the file to write the CSS to
+     * @return a result without CSS, or the errors of the first stage that failed
+     * @throws IOException if writing the output file fails
+     */
+    public CompilationResult compile(String input, Path output) throws IOException {
+        if (!parseCheckAndTransform(input)) {
+            return CompilationResult.failed(errors);
+        }
+        generate(output);
+        return CompilationResult.streamed();
+    }
+
+    /**
+     * Like {@link #compile(String, Path)}, but parses the source file with
+     * {@link #parseFile(Path)} instead of taking its text.
+     *
+     * @param source the ICSS file to compile
+     * @param output the file to write the CSS to
+     * @return a result without CSS, or the errors of the first stage that failed
+     * @throws IOException if reading the source or writing the output file fails
+     */
+    public CompilationResult compile(Path source, Path output) throws IOException {
+        parseFile(source);
+        if (!checkAndTransform()) {
+            return CompilationResult.failed(errors);
+        }
+        generate(output);
+        return CompilationResult.streamed();
+    }
+
+    private boolean parseCheckAndTransform(String input) {
+        parseString(input);
+        return checkAndTransform();
+    }
+
+    private boolean checkAndTransform() {
+        if (!parsed || !check()) {
+            return false;
+        }
+        transform();
+        return true;
+    }
+
+    private void generate(Path output) throws IOException {
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            generate(out);
+        }
+    }
+
     //Catch ANTLR errors
     @Override
     public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
@@ -33,8 +33,8 @@ public class AST {
 	    if(node.hasError()) {
 	        errors.add(node.getError());
         }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
+        for(int i = 0, n = node.childCount(); i < n; i++) {
+	        collectErrors(errors,node.childAt(i));
         }
     }
 
@@ -55,11 +55,12 @@ public class AST {
 	@Override
 	public String toString() {
 		if (root == null) return "AST is empty";
-		return prettyPrintNode(root, 0);
+		StringBuilder sb = new StringBuilder();
+		prettyPrintNode(sb, root, 0);
+		return sb.toString();
 	}
 
-	private String prettyPrintNode(ASTNode node, int indentLevel) {
-		StringBuilder sb = new StringBuilder();
+	private void prettyPrintNode(StringBuilder sb, ASTNode node, int indentLevel) {
 		String indent = "  ".repeat(indentLevel);
 
 		// Print current node
@@ -73,10 +74,8 @@ public class AST {
 		sb.append("\n");
 
 		// Recursively print children
-		for (ASTNode child : node.getChildren()) {
-			sb.append(prettyPrintNode(child, indentLevel + 1));
+		for (int i = 0, n = node.childCount(); i < n; i++) {
+			prettyPrintNode(sb, node.childAt(i), indentLevel + 1);
 		}
-
-		return sb.toString();
 	}
 }
@@ -3,12 +3,15 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.function.Consumer;
 
 public class ASTNode {
 
     private SemanticError error = null;
 
+    //Where the node starts in the source, packed by SourcePosition
+    private int position = SourcePosition.UNKNOWN;
+
     /*
      This method is used in the GUI to create an appropriate label
      in the tree visualisation.
@@ -24,6 +27,24 @@ public class ASTNode {
     public ArrayList<ASTNode> getChildren() {
         return new ArrayList<>();
     }
+
+    /*
+     The same children as getChildren(), in the same order, but accessed by
+     index so that walking the tree does not allocate a list per node.
+     */
+    public int childCount() {
+        return 0;
+    }
+
+    public ASTNode childAt(int index) {
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    public void forEachChild(Consumer<? super ASTNode> action) {
+        for (int i = 0, n = childCount(); i < n; i++) {
+            action.accept(childAt(i));
+        }
+    }
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
@@ -46,10 +67,26 @@ public class ASTNode {
         this.error = new SemanticError(description);
     }
 
+    public void setError(SemanticError error) {
+        this.error = error;
+    }
+
     public boolean hasError() {
         return error != null;
     }
 
+    /*
+     The start of the node in the source as a packed SourcePosition, or
+     SourcePosition.UNKNOWN for nodes that were not parsed.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
 	@Override
 	public String toString() {
 		StringBuilder result = new StringBuilder();
@@ -60,9 +97,9 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0, n = childCount(); i < n; i++) {
+			childAt(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
@@ -71,12 +108,12 @@ public class ASTNode {
         if(! (o instanceof ASTNode))
             return false;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        ASTNode other = (ASTNode) o;
+        int count = this.childCount();
+        if(other.childCount() != count)
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < count; i++ ) {
+            if(!this.childAt(i).equals(other.childAt(i))) {
                 return false;
             }
         }
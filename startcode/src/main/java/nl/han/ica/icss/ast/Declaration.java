@@ -38,6 +38,20 @@ public class Declaration extends ASTNode {
         return children;
     }
 
+    @Override
+    public int childCount() {
+        return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode childAt(int index) {
+        if (index == 0 && property != null)
+            return property;
+        if (index == (property != null ? 1 : 0) && expression != null)
+            return expression;
+        throw new IndexOutOfBoundsException(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
         if (child instanceof PropertyName) {
@@ -23,6 +23,14 @@ public class ElseClause extends ASTNode{
         return new ArrayList<>(body);
     }
 
+    @Override
+    public int childCount() {
+        return body.size();
+    }
+    @Override
+    public ASTNode childAt(int index) {
+        return body.get(index);
+    }
     @Override
     public ASTNode addChild(ASTNode child) {
 
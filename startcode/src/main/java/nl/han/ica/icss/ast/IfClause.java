@@ -42,6 +42,22 @@ public class IfClause extends ASTNode {
         return children;
     }
 
+    @Override
+    public int childCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode childAt(int index) {
+        if (index == 0)
+            return conditionalExpression;
+        if (index <= body.size())
+            return body.get(index - 1);
+        if (index == body.size() + 1 && elseClause != null)
+            return elseClause;
+        throw new IndexOutOfBoundsException(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
         if (child instanceof Expression)
@@ -24,6 +24,20 @@ public abstract class Operation extends Expression {
         return children;
     }
 
+    @Override
+    public int childCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode childAt(int index) {
+        if (index == 0 && lhs != null)
+            return lhs;
+        if (index == (lhs != null ? 1 : 0) && rhs != null)
+            return rhs;
+        throw new IndexOutOfBoundsException(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
         if(lhs == null) {
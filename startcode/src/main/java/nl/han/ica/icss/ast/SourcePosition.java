@@ -0,0 +1,48 @@
+package nl.han.ica.icss.ast;
+
+/**
+ * Packs a line and column of the source into a single {@code int}, so nodes and
+ * diagnostics can store their position without an object per position.
+ *
+ * <p>The line (1-based) takes the high 20 bits and the column (0-based) the low
+ * 12 bits. Larger values are clamped to the largest that fits. {@link #UNKNOWN}
+ * is 0, as no position is on line 0.</p>
+ */
+public final class SourcePosition {
+
+    public static final int UNKNOWN = 0;
+
+    private static final int COLUMN_BITS = 12;
+    private static final int MAX_COLUMN = (1 << COLUMN_BITS) - 1;
+    private static final int MAX_LINE = (1 << (Integer.SIZE - COLUMN_BITS)) - 1;
+
+    private SourcePosition() {
+    }
+
+    /**
+     * @param line   the 1-based line
+     * @param column the 0-based column
+     * @return the packed position, or {@link #UNKNOWN} if the line is not positive
+     */
+    public static int of(int line, int column) {
+        if (line <= 0) {
+            return UNKNOWN;
+        }
+        return Math.min(line, MAX_LINE) << COLUMN_BITS | Math.clamp(column, 0, MAX_COLUMN);
+    }
+
+    public static int line(int position) {
+        return position >>> COLUMN_BITS;
+    }
+
+    public static int column(int position) {
+        return position & MAX_COLUMN;
+    }
+
+    /**
+     * Formats a position as {@code line:column}, or {@code ?} if it is unknown.
+     */
+    public static String toString(int position) {
+        return position == UNKNOWN ? "?" : line(position) + ":" + column(position);
+    }
+}
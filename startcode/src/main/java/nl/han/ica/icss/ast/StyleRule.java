@@ -30,6 +30,17 @@ public class StyleRule extends ASTNode {
 		return children;
 	}
 
+	@Override
+	public int childCount() {
+		return selectors.size() + body.size();
+	}
+
+	@Override
+	public ASTNode childAt(int index) {
+		int selectorCount = selectors.size();
+		return index < selectorCount ? selectors.get(index) : body.get(index - selectorCount);
+	}
+
     @Override
     public ASTNode addChild(ASTNode child) {
 		if(child instanceof Selector)
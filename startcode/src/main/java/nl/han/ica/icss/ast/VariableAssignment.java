@@ -43,6 +43,20 @@ public class VariableAssignment extends ASTNode {
 		return children;
 	}
 
+	@Override
+	public int childCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+
+	@Override
+	public ASTNode childAt(int index) {
+		if (index == 0 && name != null)
+			return name;
+		if (index == (name != null ? 1 : 0) && expression != null)
+			return expression;
+		throw new IndexOutOfBoundsException(index);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
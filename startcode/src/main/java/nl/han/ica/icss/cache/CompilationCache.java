@@ -0,0 +1,280 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.PropertyRules;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of compilation results in front of {@link Pipeline}, keyed by the
+ * SHA-256 hash of the source text, {@link Pipeline#VERSION} and
+ * {@link PropertyRules#VERSION}.
+ *
+ * <p>A hit returns the previously generated CSS, or the previously reported
+ * errors, without lexing or parsing the source. Results are kept in two tiers:</p>
+ * <ul>
+ *   <li>an in-memory LRU map that evicts the least recently used results once
+ *   their estimated size exceeds a limit;</li>
+ *   <li>optionally, one file per result in a cache directory, which survives
+ *   restarts and can be shared between builds.</li>
+ * </ul>
+ *
+ * <p>The disk tier is best effort: unreadable or corrupt files count as a miss,
+ * and failures to store a result are ignored. The cache is safe for concurrent
+ * use; two threads missing on the same source at once both compile it.</p>
+ */
+public class CompilationCache {
+
+    private static final int FILE_MAGIC = 0x49435343; // "ICSC"
+    private static final String FILE_SUFFIX = ".result";
+
+    /**
+     * Estimated fixed cost in bytes of one in-memory entry: the key, the map
+     * entry and the result objects.
+     */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final Function<String, CompilationResult> compiler;
+
+    //Guarded by itself; an access-ordered map iterates from least to most recently used
+    private final LinkedHashMap<String, CompilationResult> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache with only the in-memory tier.
+     *
+     * @param maxMemoryBytes the estimated size in bytes the in-memory tier may grow to
+     */
+    public CompilationCache(long maxMemoryBytes) {
+        this(maxMemoryBytes, null);
+    }
+
+    /**
+     * Creates a cache with an in-memory tier backed by a cache directory.
+     *
+     * @param maxMemoryBytes the estimated size in bytes the in-memory tier may grow to
+     * @param directory      the directory to store results in, or {@code null} for none;
+     *                       it is created when the first result is stored
+     */
+    public CompilationCache(long maxMemoryBytes, Path directory) {
+        this(maxMemoryBytes, directory, input -> new Pipeline().compile(input));
+    }
+
+    CompilationCache(long maxMemoryBytes, Path directory, Function<String, CompilationResult> compiler) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("Negative cache size: " + maxMemoryBytes);
+        }
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.compiler = compiler;
+    }
+
+    /**
+     * Returns the cached result for the source, compiling and caching it on a miss.
+     *
+     * @param source the ICSS source text
+     * @return the generated CSS, or the errors of the first stage that failed
+     */
+    public CompilationResult compile(String source) {
+        String key = key(source);
+
+        CompilationResult result = fromMemory(key);
+        if (result == null && directory != null) {
+            result = fromDisk(key);
+            if (result != null) {
+                diskHits.incrementAndGet();
+                toMemory(key, result);
+            }
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+            return result;
+        }
+
+        misses.incrementAndGet();
+        result = compiler.apply(source);
+        toMemory(key, result);
+        if (directory != null) {
+            toDisk(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Number of lookups answered from either tier.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of hits answered from the cache directory because the result was
+     * not, or no longer, in memory. Included in {@link #getHits()}.
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of results evicted from the in-memory tier. Evicted results stay
+     * available in the cache directory, if there is one.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Estimated size in bytes of the results currently held in memory.
+     */
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    /**
+     * Computes the cache key of a source: the hex SHA-256 of the compiler and
+     * property table versions followed by the source text.
+     */
+    static String key(String source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // required on every JVM
+        }
+        digest.update((Pipeline.VERSION + "/" + PropertyRules.VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private CompilationResult fromMemory(String key) {
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private void toMemory(String key, CompilationResult result) {
+        long size = sizeOf(result);
+        if (size > maxMemoryBytes) {
+            return; // would evict everything else and still not fit
+        }
+        synchronized (memory) {
+            CompilationResult previous = memory.put(key, result);
+            if (previous != null) {
+                memoryBytes -= sizeOf(previous);
+            }
+            memoryBytes += size;
+
+            Iterator<CompilationResult> leastRecentlyUsed = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes) {
+                memoryBytes -= sizeOf(leastRecentlyUsed.next());
+                leastRecentlyUsed.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long sizeOf(CompilationResult result) {
+        long chars = result.css() == null ? 0 : result.css().length();
+        for (String error : result.errors()) {
+            chars += error.length();
+        }
+        return ENTRY_OVERHEAD + 2 * chars;
+    }
+
+    private Path fileFor(String key) {
+        //Spread the files over subdirectories so no single directory grows too large
+        return directory.resolve(key.substring(0, 2)).resolve(key + FILE_SUFFIX);
+    }
+
+    private CompilationResult fromDisk(String key) {
+        Path file = fileFor(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                return null;
+            }
+            boolean successful = in.readBoolean();
+            int count = in.readInt();
+            List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                strings.add(readString(in));
+            }
+            return successful
+                    ? CompilationResult.succeeded(strings.getFirst())
+                    : CompilationResult.failed(strings);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null; // corrupt or truncated, recompile and overwrite it
+        }
+    }
+
+    private void toDisk(String key, CompilationResult result) {
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            //Write to a temporary file first, so readers never see a partially written result
+            Path temporary = Files.createTempFile(file.getParent(), key, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeBoolean(result.isSuccessful());
+                    List<String> strings = result.isSuccessful() ? List.of(result.css()) : result.errors();
+                    out.writeInt(strings.size());
+                    for (String string : strings) {
+                        writeString(out, string);
+                    }
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            //Best effort: the result is still returned and kept in memory
+        }
+    }
+
+    //DataOutput.writeUTF is limited to 64 KiB, generated CSS is not
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.scoping.IScopeManager;
+
+/**
+ * Mutable state of a single {@link Checker#check} invocation.
+ */
+final class CheckContext {
+
+    /**
+     * The variable types visible at the node currently being checked.
+     */
+    final IScopeManager<ExpressionType> scopes;
+
+    /**
+     * The errors found so far.
+     */
+    final Diagnostics diagnostics = new Diagnostics();
+
+    /**
+     * Whether errors are also recorded on the nodes themselves.
+     */
+    private final boolean errorsOnNodes;
+
+    CheckContext(IScopeManager<ExpressionType> scopes, boolean errorsOnNodes) {
+        this.scopes = scopes;
+        this.errorsOnNodes = errorsOnNodes;
+    }
+
+    void report(ASTNode node, String message) {
+        reportAt(diagnostics.size(), node, message);
+    }
+
+    /**
+     * Reports an error before the errors found since {@link #mark()} returned
+     * the given index, i.e. before the errors in the children of the node.
+     */
+    void reportAt(int mark, ASTNode node, String message) {
+        SemanticError error = new SemanticError(message);
+        if (errorsOnNodes) {
+            node.setError(error);
+        }
+        diagnostics.insert(mark, node, error);
+    }
+
+    int mark() {
+        return diagnostics.size();
+    }
+}
@@ -3,6 +3,7 @@ package nl.han.ica.icss.checker;
 import nl.han.ica.icss.ast.operations.AddOperation;
 import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.scoping.IScopeManager;
 import nl.han.ica.icss.scoping.ScopeManager;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
@@ -10,35 +11,180 @@ import nl.han.ica.icss.ast.types.ExpressionType;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 import static nl.han.ica.icss.ast.types.ExpressionType.*;
 
 public class Checker {
 
     /**
-     * Manages the scoping and resolution of variable declarations and types
-     * within the context of the {@link ExpressionType} system.
+     * A predefined set of {@link ExpressionType}s representing non-numeric types
+     * used during type validation in the {@code Checker} class.
+     */
+    private final EnumSet<ExpressionType> nonNumericTypes = EnumSet.of(BOOL, COLOR);
+
+    /**
+     * Creates the scope manager for each check.
+     */
+    private final Supplier<? extends IScopeManager<ExpressionType>> scopeManagers;
+
+    /**
+     * Whether errors are recorded on the nodes, besides in the {@link Diagnostics}.
+     */
+    private final boolean errorsOnNodes;
+
+    /**
+     * Creates a checker that uses a {@link ScopeManager} for variable scopes.
+     */
+    public Checker() {
+        this(ScopeManager::new);
+    }
+
+    /**
+     * Creates a checker that uses scope managers from the given factory, e.g.
+     * {@code FlatScopeManager::new}. A new one is requested for every check.
      *
-     * @see ScopeManager
-     * @see ExpressionType
+     * @param scopeManagers the factory of scope managers
      */
-    private ScopeManager<ExpressionType> scopeManager;
+    public Checker(Supplier<? extends IScopeManager<ExpressionType>> scopeManagers) {
+        this(scopeManagers, true);
+    }
 
     /**
-     * A predefined set of {@link ExpressionType}s representing non-numeric types
-     * used during type validation in the {@code Checker} class.
+     * Creates a checker that uses scope managers from the given factory and
+     * optionally leaves the nodes of the AST as they are.
+     *
+     * <p>Without errors on the nodes, the errors are only in the returned
+     * {@link Diagnostics}: {@link AST#getErrors()} and the GUI do not see
+     * them, and an AST can be checked again without stale errors.</p>
+     *
+     * @param scopeManagers the factory of scope managers
+     * @param errorsOnNodes whether errors are also recorded on the nodes
      */
-    private final EnumSet<ExpressionType> nonNumericTypes = EnumSet.of(BOOL, COLOR);
+    public Checker(Supplier<? extends IScopeManager<ExpressionType>> scopeManagers, boolean errorsOnNodes) {
+        this.scopeManagers = scopeManagers;
+        this.errorsOnNodes = errorsOnNodes;
+    }
 
     /**
      * Performs a validation check on the provided Abstract Syntax Tree (AST).
      *
+     * <p>All state of a check lives in a {@link CheckContext} created per call,
+     * so a single checker can be shared between threads. Unless errors are
+     * only collected in the {@link Diagnostics}, concurrent calls must not
+     * pass the same AST, as errors are recorded on its nodes.</p>
+     *
      * @param ast the Abstract Syntax Tree to validate
+     * @return the errors found, in the order {@link AST#getErrors()} lists them
      */
-    public void check(AST ast) {
-        // TODO: Make checker stateless; it's not because of this
-        scopeManager = new ScopeManager<>();
-        scopeManager.inNewScope(() -> checkBody(ast.root.getChildren()));
+    public Diagnostics check(AST ast) {
+        CheckContext ctx = newContext(scopeManagers.get());
+        ctx.scopes.inNewScope(() -> checkBody(ast.root.body, ctx));
+        return ctx.diagnostics;
+    }
+
+    /**
+     * Checks the AST like {@link #check(AST)}, but checks the style rules
+     * concurrently on the given pool.
+     *
+     * <p>The top-level variable assignments are checked first, in order,
+     * recording the global types in a {@link GlobalTypes} snapshot. Apart from
+     * reading the globals declared before them, style rules are independent,
+     * so every rule is then checked with scopes of its own on top of that
+     * snapshot. Every rule collects its errors in diagnostics of its own,
+     * which are merged in source order afterwards, so the errors are listed
+     * exactly as after a sequential check.</p>
+     *
+     * @param ast  the Abstract Syntax Tree to validate
+     * @param pool the pool to check the style rules on
+     * @return the errors found, in the order {@link AST#getErrors()} lists them
+     */
+    public Diagnostics check(AST ast, ForkJoinPool pool) {
+        CheckContext globalCtx = newContext(scopeManagers.get());
+        GlobalTypes globals = new GlobalTypes();
+        List<StyleRule> rules = new ArrayList<>();
+        List<Integer> visibleGlobals = new ArrayList<>();
+        //Number of global errors before each rule
+        List<Integer> globalErrors = new ArrayList<>();
+
+        globalCtx.scopes.inNewScope(() -> {
+            for (ASTNode child : ast.root.body) {
+                switch (child) {
+                    case VariableAssignment va -> {
+                        handleVariableAssignment(va, globalCtx);
+                        globals.declareIfAbsent(va.name.name, globalCtx.scopes.resolve(va.name.name));
+                    }
+                    case StyleRule rule -> {
+                        rules.add(rule);
+                        visibleGlobals.add(globals.size());
+                        globalErrors.add(globalCtx.mark());
+                    }
+                    default -> checkBody(List.of(child), globalCtx);
+                }
+            }
+        });
+
+        Diagnostics[] ruleErrors = new Diagnostics[rules.size()];
+        pool.invoke(new CheckRules(rules, visibleGlobals, globals, ruleErrors, 0, rules.size()));
+
+        Diagnostics global = globalCtx.diagnostics;
+        Diagnostics merged = new Diagnostics();
+        int from = 0;
+        for (int i = 0; i < ruleErrors.length; i++) {
+            merged.addAll(global, from, globalErrors.get(i));
+            from = globalErrors.get(i);
+            merged.addAll(ruleErrors[i], 0, ruleErrors[i].size());
+        }
+        merged.addAll(global, from, global.size());
+        return merged;
+    }
+
+    private CheckContext newContext(IScopeManager<ExpressionType> scopes) {
+        return new CheckContext(scopes, errorsOnNodes);
+    }
+
+    /**
+     * Checks a range of style rules, splitting it over subtasks while it is large.
+     */
+    private final class CheckRules extends RecursiveAction {
+
+        //Small rules take microseconds to check, so a task needs a few to be worth forking
+        private static final int RULES_PER_TASK = 16;
+
+        private final List<StyleRule> rules;
+        private final List<Integer> visibleGlobals;
+        private final GlobalTypes globals;
+        //The errors of each rule, filled in by the task that checks it
+        private final Diagnostics[] ruleErrors;
+        private final int from;
+        private final int to;
+
+        CheckRules(List<StyleRule> rules, List<Integer> visibleGlobals, GlobalTypes globals,
+                   Diagnostics[] ruleErrors, int from, int to) {
+            this.rules = rules;
+            this.visibleGlobals = visibleGlobals;
+            this.globals = globals;
+            this.ruleErrors = ruleErrors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RULES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CheckRules(rules, visibleGlobals, globals, ruleErrors, from, middle),
+                        new CheckRules(rules, visibleGlobals, globals, ruleErrors, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                CheckContext ctx = newContext(globals.scopesFor(scopeManagers.get(), visibleGlobals.get(i)));
+                handleStyleRule(rules.get(i), ctx);
+                ruleErrors[i] = ctx.diagnostics;
+            }
+        }
     }
 
     /**
@@ -46,14 +192,15 @@ public class Checker {
      * to its corresponding handler.
      *
      * @param body the list of AST nodes to check
+     * @param ctx the state of the current check
      */
-    private void checkBody(List<ASTNode> body) {
+    private void checkBody(List<ASTNode> body, CheckContext ctx) {
         for (ASTNode child : body) {
             switch (child) {
-                case VariableAssignment va -> handleVariableAssignment(va);
-                case Declaration decl -> handleDeclaration(decl);
-                case IfClause ifc -> handleIfClause(ifc);
-                case StyleRule rule -> handleStyleRule(rule);
+                case VariableAssignment va -> handleVariableAssignment(va, ctx);
+                case Declaration decl -> handleDeclaration(decl, ctx);
+                case IfClause ifc -> handleIfClause(ifc, ctx);
+                case StyleRule rule -> handleStyleRule(rule, ctx);
                 default -> {} // skip
             }
         }
@@ -63,9 +210,10 @@ public class Checker {
      * Processes a {@link StyleRule} by checking its body in a new scope.
      *
      * @param rule the style rule to process
+     * @param ctx the state of the current check
      */
-    private void handleStyleRule(StyleRule rule) {
-        scopeManager.inNewScope(() -> checkBody(rule.getChildren()));
+    private void handleStyleRule(StyleRule rule, CheckContext ctx) {
+        ctx.scopes.inNewScope(() -> checkBody(rule.body, ctx));
     }
 
     /**
@@ -73,14 +221,15 @@ public class Checker {
      * the bodies of the if- and else-branches in separate scopes.
      *
      * @param ifc the if-clause to process
+     * @param ctx the state of the current check
      */
-    private void handleIfClause(IfClause ifc) {
-        checkIfCondition(ifc);
+    private void handleIfClause(IfClause ifc, CheckContext ctx) {
+        checkIfCondition(ifc, ctx);
 
-        scopeManager.inNewScope(() -> checkBody(ifc.body));
+        ctx.scopes.inNewScope(() -> checkBody(ifc.body, ctx));
 
         if (ifc.elseClause != null) {
-            scopeManager.inNewScope(() -> checkBody(ifc.elseClause.getChildren()));
+            ctx.scopes.inNewScope(() -> checkBody(ifc.elseClause.body, ctx));
         }
     }
 
@@ -91,15 +240,17 @@ public class Checker {
      * Violations are recorded as errors on the if-clause.</p>
      *
      * @param ifc the if-clause whose condition is checked
+     * @param ctx the state of the current check
      */
-    private void checkIfCondition(IfClause ifc) {
+    private void checkIfCondition(IfClause ifc, CheckContext ctx) {
         if (ifc.conditionalExpression == null) {
-            ifc.setError("If-condition is missing");
+            ctx.report(ifc, "If-condition is missing");
             return;
         }
-        ExpressionType type = resolveExpressionType(ifc.conditionalExpression);
+        int mark = ctx.mark();
+        ExpressionType type = resolveExpressionType(ifc.conditionalExpression, ctx);
         if (type != BOOL) {
-            ifc.setError("If-condition must be a boolean, but got: " + type);
+            ctx.reportAt(mark, ifc, "If-condition must be a boolean, but got: " + type);
         }
     }
 
@@ -111,12 +262,14 @@ public class Checker {
      * recorded on the assignment.</p>
      *
      * @param varAss the variable assignment to process
+     * @param ctx the state of the current check
      */
-    private void handleVariableAssignment(VariableAssignment varAss) {
-        ExpressionType type = resolveExpressionType(varAss.expression);
+    private void handleVariableAssignment(VariableAssignment varAss, CheckContext ctx) {
+        int mark = ctx.mark();
+        ExpressionType type = resolveExpressionType(varAss.expression, ctx);
         String varName = varAss.name.name;
-        if (!scopeManager.declareIfAbsent(varName, type)) {
-            varAss.setError("Variable '" + varName + "' redeclared in the same scope");
+        if (!ctx.scopes.declareIfAbsent(varName, type)) {
+            ctx.reportAt(mark, varAss, "Variable '" + varName + "' redeclared in the same scope");
         }
     }
 
@@ -128,15 +281,16 @@ public class Checker {
      * result in {@link ExpressionType#UNDEFINED}.</p>
      *
      * @param expr the expression to resolve
+     * @param ctx the state of the current check
      * @return the resolved {@link ExpressionType}, or {@link ExpressionType#UNDEFINED} if unsupported
      */
-    private ExpressionType resolveExpressionType(@NotNull Expression expr) {
+    private ExpressionType resolveExpressionType(@NotNull Expression expr, CheckContext ctx) {
         return switch (expr) {
-            case VariableReference ref -> resolveVariableRef(ref);
-            case Operation op -> resolveOperationType(op);
-            case Literal lit -> resolveLiteralType(lit);
+            case VariableReference ref -> resolveVariableRef(ref, ctx);
+            case Operation op -> resolveOperationType(op, ctx);
+            case Literal lit -> resolveLiteralType(lit, ctx);
             default -> {
-                expr.setError("Unsupported expression: " + expr.getClass().getSimpleName());
+                ctx.report(expr, "Unsupported expression: " + expr.getClass().getSimpleName());
                 yield UNDEFINED;
             }
         };
@@ -149,9 +303,10 @@ public class Checker {
      * node and {@link ExpressionType#UNDEFINED} is returned.</p>
      *
      * @param lit the literal to resolve
+     * @param ctx the state of the current check
      * @return the resolved {@link ExpressionType}, or {@link ExpressionType#UNDEFINED} if unknown
      */
-    private ExpressionType resolveLiteralType(Literal lit) {
+    private ExpressionType resolveLiteralType(Literal lit, CheckContext ctx) {
         return switch (lit) {
             case PixelLiteral _ -> PIXEL;
             case ScalarLiteral _ -> SCALAR;
@@ -159,7 +314,7 @@ public class Checker {
             case PercentageLiteral _ -> PERCENTAGE;
             case ColorLiteral _ -> COLOR;
             default -> {
-                lit.setError("Unknown literal type: " + lit.getClass().getSimpleName());
+                ctx.report(lit, "Unknown literal type: " + lit.getClass().getSimpleName());
                 yield UNDEFINED;
             }
         };
@@ -174,19 +329,20 @@ public class Checker {
      * on the operation node.</p>
      *
      * @param op the operation to resolve
+     * @param ctx the state of the current check
      * @return the resulting {@link ExpressionType}, or {@link ExpressionType#UNDEFINED} if invalid
      */
-    private ExpressionType resolveOperationType(Operation op) {
-        var left = resolveExpressionType(op.lhs);
-        var right = resolveExpressionType(op.rhs);
+    private ExpressionType resolveOperationType(Operation op, CheckContext ctx) {
+        var left = resolveExpressionType(op.lhs, ctx);
+        var right = resolveExpressionType(op.rhs, ctx);
 
         if (left == UNDEFINED || right == UNDEFINED) return UNDEFINED;
 
         return switch (op) {
-            case SubtractOperation _, AddOperation _ -> resolveAdditiveOperation(op, left, right);
-            case MultiplyOperation _ -> resolveMultiplyOperation(op, left, right);
+            case SubtractOperation _, AddOperation _ -> resolveAdditiveOperation(op, left, right, ctx);
+            case MultiplyOperation _ -> resolveMultiplyOperation(op, left, right, ctx);
             default -> {
-                op.setError("Unknown operation: " + op.getClass().getSimpleName());
+                ctx.report(op, "Unknown operation: " + op.getClass().getSimpleName());
                 yield UNDEFINED;
             }
         };
@@ -202,12 +358,14 @@ public class Checker {
      * @param op    the additive operation
      * @param left  the left operand type
      * @param right the right operand type
+     * @param ctx   the state of the current check
      * @return the resulting type, or {@link ExpressionType#UNDEFINED} if invalid
      */
-    private ExpressionType resolveAdditiveOperation(Operation op, ExpressionType left, ExpressionType right) {
+    private ExpressionType resolveAdditiveOperation(Operation op, ExpressionType left, ExpressionType right,
+                                                    CheckContext ctx) {
         boolean areNotSameType = left != right;
         if (areNotSameType || nonNumericTypes.contains(left)) {
-            op.setError("Invalid operands for " + op.getNodeLabel() + ": " + left + " and " + right);
+            ctx.report(op, "Invalid operands for " + op.getNodeLabel() + ": " + left + " and " + right);
             return UNDEFINED;
         }
         return left;
@@ -227,15 +385,17 @@ public class Checker {
      * @param op    the multiplication operation being checked
      * @param left  the type of the left operand
      * @param right the type of the right operand
+     * @param ctx   the state of the current check
      * @return the resulting {@link ExpressionType} favoring the non-scalar type, or {@link ExpressionType#UNDEFINED}
      * if the operands are not compatible
      */
-    private ExpressionType resolveMultiplyOperation(Operation op, ExpressionType left, ExpressionType right) {
+    private ExpressionType resolveMultiplyOperation(Operation op, ExpressionType left, ExpressionType right,
+                                                    CheckContext ctx) {
         boolean containsNoScalar = left != SCALAR && right != SCALAR;
         boolean containsNonNumeric = nonNumericTypes.contains(left) || nonNumericTypes.contains(right);
 
         if (containsNoScalar || containsNonNumeric) {
-            op.setError("Can't Multiply " + left + " with " + right);
+            ctx.report(op, "Can't Multiply " + left + " with " + right);
             return UNDEFINED;
         }
 
@@ -247,13 +407,14 @@ public class Checker {
      * If the variable is not found, an error is recorded on the reference, and the type is set to {@link ExpressionType#UNDEFINED}.
      *
      * @param ref The {@link VariableReference} to be resolved, containing the name of the variable.
+     * @param ctx the state of the current check
      * @return The {@link ExpressionType} of the variable if found in the current scope;
      * otherwise, {@link ExpressionType#UNDEFINED}.
      */
-    private ExpressionType resolveVariableRef(VariableReference ref) {
-        ExpressionType type = scopeManager.resolve(ref.name);
+    private ExpressionType resolveVariableRef(VariableReference ref, CheckContext ctx) {
+        ExpressionType type = ctx.scopes.resolve(ref.name);
         if (type == null) {
-            ref.setError("Unknown variable '" + ref.name + "'");
+            ctx.report(ref, "Unknown variable '" + ref.name + "'");
             return UNDEFINED;
         }
         return type;
@@ -267,28 +428,29 @@ public class Checker {
      * to {@link ExpressionType#UNDEFINED}, no additional error is added.</p>
      *
      * @param decl the declaration to validate
+     * @param ctx the state of the current check
      */
-    private void handleDeclaration(Declaration decl) {
+    private void handleDeclaration(Declaration decl, CheckContext ctx) {
         String propertyName = decl.property.name;
         Set<ExpressionType> allowed = PropertyRules.allowedTypesFor(propertyName);
 
         if (allowed == null) {
-            decl.setError("Unknown property '" + propertyName + "'");
+            ctx.report(decl, "Unknown property '" + propertyName + "'");
             return;
         }
 
         if (decl.expression == null) {
-            decl.setError("Property '" + propertyName + "' must have a value");
+            ctx.report(decl, "Property '" + propertyName + "' must have a value");
             return;
         }
 
-        ExpressionType actualType = resolveExpressionType(decl.expression);
+        ExpressionType actualType = resolveExpressionType(decl.expression, ctx);
         if (actualType == UNDEFINED) {
             return;
         }
 
         if (!allowed.contains(actualType)) {
-            decl.setError("Invalid value type '" + actualType + "' for property '" + propertyName + "'");
+            ctx.report(decl, "Invalid value type '" + actualType + "' for property '" + propertyName + "'");
         }
 
     }
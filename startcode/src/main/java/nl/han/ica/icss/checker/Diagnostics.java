@@ -0,0 +1,138 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.SourcePosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The errors of a check, in the order {@link AST#getErrors()} lists them.
+ *
+ * <p>The {@link Checker} appends to the diagnostics as it finds errors, so they
+ * can be read without walking the tree again. Each entry holds the node, its
+ * source position as packed by {@link SourcePosition} and the error, in
+ * three parallel arrays that are only allocated once the first error is
+ * reported.</p>
+ */
+public final class Diagnostics {
+
+    private static final ASTNode[] NO_NODES = {};
+    private static final int[] NO_POSITIONS = {};
+    private static final SemanticError[] NO_ERRORS = {};
+
+    private ASTNode[] nodes = NO_NODES;
+    private int[] positions = NO_POSITIONS;
+    private SemanticError[] errors = NO_ERRORS;
+    private int size = 0;
+
+    /**
+     * Collects the errors recorded on the nodes of an AST, e.g. of one that was
+     * loaded instead of checked.
+     */
+    public static Diagnostics of(AST ast) {
+        Diagnostics diagnostics = new Diagnostics();
+        if (ast.root != null) {
+            diagnostics.collect(ast.root);
+        }
+        return diagnostics;
+    }
+
+    private void collect(ASTNode node) {
+        if (node.hasError()) {
+            insert(size, node, node.getError());
+        }
+        for (int i = 0, n = node.childCount(); i < n; i++) {
+            collect(node.childAt(i));
+        }
+    }
+
+    /**
+     * Appends an error on a node.
+     */
+    public void report(ASTNode node, String message) {
+        insert(size, node, new SemanticError(message));
+    }
+
+    /**
+     * Inserts an error before the entry at the given index. The checker uses
+     * this for errors on a node that are only known after checking its children.
+     */
+    void insert(int index, ASTNode node, SemanticError error) {
+        if (size == nodes.length) {
+            int capacity = Math.max(8, size * 2);
+            nodes = Arrays.copyOf(nodes, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+        }
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(nodes, index, nodes, index + 1, moved);
+            System.arraycopy(positions, index, positions, index + 1, moved);
+            System.arraycopy(errors, index, errors, index + 1, moved);
+        }
+        nodes[index] = node;
+        positions[index] = node.getPosition();
+        errors[index] = error;
+        size++;
+    }
+
+    /**
+     * Appends the entries {@code from} (inclusive) to {@code to} (exclusive) of other diagnostics.
+     */
+    void addAll(Diagnostics other, int from, int to) {
+        for (int i = from; i < to; i++) {
+            insert(size, other.nodes[i], other.errors[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public ASTNode node(int index) {
+        return nodes[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * @return the packed {@link SourcePosition} of the node of an entry
+     */
+    public int position(int index) {
+        return positions[Objects.checkIndex(index, size)];
+    }
+
+    public String message(int index) {
+        return errors[Objects.checkIndex(index, size)].description;
+    }
+
+    /**
+     * The errors, as {@link AST#getErrors()} returns them. When the checker
+     * also recorded them on the nodes, these are the same objects.
+     */
+    public List<SemanticError> getErrors() {
+        return new ArrayList<>(Arrays.asList(errors).subList(0, size));
+    }
+
+    /**
+     * Formats an entry as {@code line:column: message}.
+     */
+    public String toString(int index) {
+        return SourcePosition.toString(position(index)) + ": " + message(index);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            result.append(toString(i)).append('\n');
+        }
+        return result.toString();
+    }
+}
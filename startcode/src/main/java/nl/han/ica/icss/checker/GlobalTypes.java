@@ -0,0 +1,90 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.scoping.IScopeManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The types of the global variables of a stylesheet, in declaration order.
+ *
+ * <p>A global is only visible to the style rules after its declaration, and a
+ * redeclared global keeps its first type. So the global scope seen by any rule
+ * is a prefix of the declarations, and one table serves as an immutable
+ * snapshot for every rule: a rule only needs to know how many globals were
+ * declared before it. Once filled, the table is only read and can be shared
+ * between threads.</p>
+ */
+final class GlobalTypes {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<ExpressionType> types = new ArrayList<>();
+
+    /**
+     * Adds a global, unless a global of that name was declared before.
+     */
+    void declareIfAbsent(String name, ExpressionType type) {
+        if (indices.putIfAbsent(name, types.size()) == null) {
+            types.add(type);
+        }
+    }
+
+    /**
+     * Number of globals declared so far.
+     */
+    int size() {
+        return types.size();
+    }
+
+    /**
+     * Returns the type of a global if it is among the first {@code visible} declarations.
+     */
+    ExpressionType resolve(String name, int visible) {
+        Integer index = indices.get(name);
+        return index != null && index < visible ? types.get(index) : null;
+    }
+
+    /**
+     * Returns scopes for checking one style rule: the local scopes come from
+     * the given manager, and names that are not declared locally resolve to the
+     * first {@code visible} globals.
+     */
+    IScopeManager<ExpressionType> scopesFor(IScopeManager<ExpressionType> locals, int visible) {
+        return new IScopeManager<>() {
+            @Override
+            public void enterScope() {
+                locals.enterScope();
+            }
+
+            @Override
+            public void exitScope() {
+                locals.exitScope();
+            }
+
+            @Override
+            public void declare(String name, ExpressionType type) {
+                locals.declare(name, type);
+            }
+
+            @Override
+            public boolean declareIfAbsent(String name, ExpressionType value) {
+                return locals.declareIfAbsent(name, value);
+            }
+
+            @Override
+            public ExpressionType resolve(String name) {
+                //The checker never declares null types, so null means not declared locally
+                ExpressionType type = locals.resolve(name);
+                return type != null ? type : GlobalTypes.this.resolve(name, visible);
+            }
+
+            @Override
+            public void inNewScope(Runnable work) {
+                locals.inNewScope(work);
+            }
+        };
+    }
+}
@@ -4,6 +4,7 @@ import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 import static nl.han.ica.icss.ast.types.ExpressionType.*;
 
@@ -17,6 +18,13 @@ import static nl.han.ica.icss.ast.types.ExpressionType.*;
  * {@code null}.</p>
  */
 public final class PropertyRules {
+
+    /**
+     * Version of the table below. Increment it whenever the table changes, so
+     * that cached compilation results checked against the old table are not reused.
+     */
+    public static final int VERSION = 1;
+
     private static final Map<String, EnumSet<ExpressionType>> ALLOWED_TYPES = Map.of(
             "width", EnumSet.of(PERCENTAGE, PIXEL),
             "height", EnumSet.of(PIXEL, PERCENTAGE),
@@ -29,4 +37,11 @@ public final class PropertyRules {
     public static EnumSet<ExpressionType> allowedTypesFor(String propertyName) {
         return ALLOWED_TYPES.get(propertyName);
     }
+
+    /**
+     * Returns the names of all supported properties.
+     */
+    public static Set<String> supportedProperties() {
+        return ALLOWED_TYPES.keySet();
+    }
 }
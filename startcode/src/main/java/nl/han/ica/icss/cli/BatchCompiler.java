@@ -0,0 +1,138 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Compiles every {@code .icss} file below a directory, in parallel.
+ *
+ * <p>Files are compiled as independent {@link CompilationUnit}s on a
+ * work-stealing pool, so a few large stylesheets do not hold up the rest of
+ * the tree. Outputs are written next to their sources.</p>
+ */
+public class BatchCompiler implements AutoCloseable {
+
+    private final ExecutorService pool;
+    private final CompilationCache cache;
+    private boolean optimizeOutput = false;
+
+    /**
+     * Creates a batch compiler using the given number of worker threads.
+     *
+     * @param parallelism the target parallelism of the work-stealing pool
+     */
+    public BatchCompiler(int parallelism) {
+        this(parallelism, null);
+    }
+
+    /**
+     * Creates a batch compiler that looks every source up in a cache first.
+     *
+     * @param parallelism the target parallelism of the work-stealing pool
+     * @param cache       the cache of earlier compilation results, or {@code null} for none
+     */
+    public BatchCompiler(int parallelism, CompilationCache cache) {
+        this.pool = Executors.newWorkStealingPool(parallelism);
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a batch compiler using one worker per available processor.
+     */
+    public BatchCompiler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Enables optimizing the CSS of every compiled file, see
+     * {@link Pipeline#setOptimizeOutput}. Results looked up in the cache are
+     * not optimized, as the cache does not tell optimized results apart.
+     */
+    public void setOptimizeOutput(boolean optimizeOutput) {
+        this.optimizeOutput = optimizeOutput;
+    }
+
+    /**
+     * Finds all {@code .icss} files below the given root, in a stable order.
+     *
+     * @param root the directory to search
+     * @return the compilation units, sorted by path
+     * @throws IOException if the directory tree cannot be walked
+     */
+    public static List<CompilationUnit> findUnits(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(CompilationUnit.SOURCE_EXTENSION))
+                    .sorted()
+                    .map(CompilationUnit::new)
+                    .toList();
+        }
+    }
+
+    /**
+     * Compiles all {@code .icss} files below the given root.
+     *
+     * @param root the directory to compile
+     * @return the result of every compiled file, keyed and ordered by source path
+     * @throws IOException if the directory tree cannot be walked
+     */
+    public Map<Path, CompilationResult> compileTree(Path root) throws IOException {
+        return compile(findUnits(root));
+    }
+
+    /**
+     * Compiles the given units concurrently and waits for all of them to finish.
+     *
+     * @param units the units to compile
+     * @return the result of every unit, keyed and ordered by source path
+     */
+    public Map<Path, CompilationResult> compile(List<CompilationUnit> units) {
+        List<Future<CompilationResult>> futures = new ArrayList<>(units.size());
+        for (CompilationUnit unit : units) {
+            futures.add(pool.submit(() -> cache == null ? unit.compile(newPipeline()) : unit.compile(cache)));
+        }
+
+        Map<Path, CompilationResult> results = new TreeMap<>();
+        for (int i = 0; i < units.size(); i++) {
+            results.put(units.get(i).source(), await(futures.get(i)));
+        }
+        return results;
+    }
+
+    private Pipeline newPipeline() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setOptimizeOutput(optimizeOutput);
+        return pipeline;
+    }
+
+    private static CompilationResult await(Future<CompilationResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return CompilationResult.failed(List.of("Internal error: " + e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompilationResult.failed(List.of("Interrupted"));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.daemon.CompileDaemon;
+import nl.han.ica.icss.daemon.DaemonClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin command-line client: compiles the given files on a running
+ * {@link CompileDaemon}, or in this process if no daemon is running.
+ *
+ * <pre>
+ * usage: Client [--socket PATH] [--stop] &lt;file.icss&gt;...
+ * </pre>
+ *
+ * Like {@link Main}, every source is compiled to a {@code .css} file next to it.
+ * If the connection to the daemon is lost halfway, the remaining files are
+ * compiled in this process, as are all files if the socket belongs to another
+ * user. {@code --stop} asks the daemon to stop.
+ *
+ * Exits with status 1 if any file failed to compile, 2 on invalid usage.
+ */
+public class Client {
+
+    private static final String USAGE = "usage: Client [--socket PATH] [--stop] <file.icss>...";
+
+    public static void main(String[] args) {
+        Path socket = CompileDaemon.defaultSocket();
+        boolean stop = false;
+        List<Path> sources = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = Path.of(args[++i]);
+            } else if (args[i].equals("--stop")) {
+                stop = true;
+            } else if (args[i].startsWith("--")) {
+                exitWithUsage();
+            } else {
+                sources.add(Path.of(args[i]));
+            }
+        }
+        if (sources.isEmpty() && !stop) {
+            exitWithUsage();
+        }
+
+        DaemonClient daemon = DaemonClient.tryConnect(socket);
+        int failed = 0;
+        for (Path source : sources) {
+            CompilationUnit unit = new CompilationUnit(source);
+            CompilationResult result = null;
+            if (daemon != null) {
+                result = compileOnDaemon(daemon, unit);
+                if (result == null) {
+                    System.err.println("Lost connection to the daemon, compiling in-process");
+                    closeQuietly(daemon);
+                    daemon = null;
+                }
+            }
+            if (result == null) {
+                result = unit.compile();
+            }
+            if (!result.isSuccessful()) {
+                failed++;
+                for (String error : result.errors()) {
+                    System.err.println(source + ": " + error);
+                }
+            }
+        }
+
+        if (daemon != null) {
+            if (stop) {
+                try {
+                    daemon.shutdown();
+                } catch (IOException e) {
+                    //The daemon is gone either way
+                }
+            }
+            closeQuietly(daemon);
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compiles the unit on the daemon and writes its output file.
+     *
+     * @return the result, or {@code null} if the connection to the daemon was lost
+     */
+    private static CompilationResult compileOnDaemon(DaemonClient daemon, CompilationUnit unit) {
+        String input;
+        try {
+            input = Files.readString(unit.source());
+        } catch (IOException e) {
+            return CompilationResult.failed(List.of("I/O error: " + e.getMessage()));
+        }
+        CompilationResult result;
+        try {
+            result = daemon.compile(input);
+        } catch (IOException e) {
+            return null;
+        }
+        if (result.isSuccessful()) {
+            try {
+                Files.writeString(unit.output(), result.css());
+            } catch (IOException e) {
+                return CompilationResult.failed(List.of("I/O error: " + e.getMessage()));
+            }
+        }
+        return result;
+    }
+
+    private static void closeQuietly(DaemonClient daemon) {
+        try {
+            daemon.close();
+        } catch (IOException e) {
+            //Nothing to clean up
+        }
+    }
+
+    private static void exitWithUsage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,81 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A single {@code .icss} file compiled to a {@code .css} file next to it.
+ *
+ * <p>Every unit runs on its own {@link Pipeline}, because a pipeline keeps the
+ * AST, the errors and the stage flags of the input it last processed.</p>
+ *
+ * @param source the ICSS file to compile
+ */
+public record CompilationUnit(Path source) {
+
+    static final String SOURCE_EXTENSION = ".icss";
+    static final String OUTPUT_EXTENSION = ".css";
+
+    /**
+     * Returns the path the generated CSS is written to: the source path with
+     * its {@code .icss} extension replaced by {@code .css}.
+     */
+    public Path output() {
+        String name = source.getFileName().toString();
+        if (name.endsWith(SOURCE_EXTENSION)) {
+            name = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+        }
+        return source.resolveSibling(name + OUTPUT_EXTENSION);
+    }
+
+    /**
+     * Compiles the source and streams the CSS into the output file if compilation
+     * succeeded. I/O failures are reported as a failed result instead of being
+     * thrown, so one unreadable file does not abort a whole batch.
+     *
+     * @return the result of the compilation, without the CSS itself
+     */
+    public CompilationResult compile() {
+        return compile(new Pipeline());
+    }
+
+    /**
+     * Like {@link #compile()}, but on the given pipeline, e.g. one that
+     * optimizes the CSS.
+     *
+     * @param pipeline a pipeline used for no other unit at the same time
+     * @return the result of the compilation, without the CSS itself
+     */
+    public CompilationResult compile(Pipeline pipeline) {
+        try {
+            return pipeline.compile(source, output());
+        } catch (IOException e) {
+            return CompilationResult.failed(List.of("I/O error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Looks the source up in the cache, compiling it only on a miss, and writes
+     * the output file if compilation succeeded.
+     *
+     * @param cache the cache of earlier compilation results
+     * @return the result of the compilation
+     */
+    public CompilationResult compile(CompilationCache cache) {
+        try {
+            CompilationResult result = cache.compile(Files.readString(source));
+            if (result.isSuccessful()) {
+                Files.writeString(output(), result.css());
+            }
+            return result;
+        } catch (IOException e) {
+            return CompilationResult.failed(List.of("I/O error: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless entry point: compiles directory trees of ICSS files without the GUI.
+ *
+ * <pre>
+ * usage: Main [--threads N] [--cache-dir DIR] [--watch] [--optimize] &lt;directory&gt;...
+ * </pre>
+ *
+ * With {@code --cache-dir}, compilation results are cached in the given
+ * directory, so unchanged sources are not recompiled by later runs.
+ *
+ * With {@code --watch}, the directories are watched after compiling them and
+ * changed sources are recompiled until the process is stopped; see {@link Watcher}.
+ *
+ * With {@code --optimize}, the CSS is optimized before it is written and the
+ * savings are reported; see {@link nl.han.ica.icss.transforms.CssOptimizer}.
+ * It cannot be combined with {@code --cache-dir} or {@code --watch}, which do
+ * not optimize.
+ *
+ * Exits with status 1 if any file failed to compile, 2 on invalid usage.
+ */
+public class Main {
+
+    private static final String USAGE = "usage: Main [--threads N] [--cache-dir DIR] [--watch] [--optimize] <directory>...";
+    private static final long CACHE_MEMORY_BYTES = 64L * 1024 * 1024;
+    private static final Duration WATCH_DEBOUNCE = Duration.ofMillis(50);
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        CompilationCache cache = null;
+        boolean watch = false;
+        boolean optimize = false;
+        List<Path> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = parseThreads(args[++i]);
+            } else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+                cache = new CompilationCache(CACHE_MEMORY_BYTES, Path.of(args[++i]));
+            } else if (args[i].equals("--watch")) {
+                watch = true;
+            } else if (args[i].equals("--optimize")) {
+                optimize = true;
+            } else if (args[i].startsWith("--")) {
+                exitWithUsage();
+            } else {
+                roots.add(Path.of(args[i]));
+            }
+        }
+        if (roots.isEmpty() || (optimize && (cache != null || watch))) {
+            exitWithUsage();
+        }
+
+        int compiled = 0;
+        int failed = 0;
+        try (BatchCompiler compiler = new BatchCompiler(threads, cache)) {
+            compiler.setOptimizeOutput(optimize);
+            for (Path root : roots) {
+                for (Map.Entry<Path, CompilationResult> entry : compiler.compileTree(root).entrySet()) {
+                    compiled++;
+                    if (!entry.getValue().isSuccessful()) {
+                        failed++;
+                        report(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(e);
+            System.exit(1);
+        }
+
+        System.out.println("Compiled " + compiled + " file(s), " + failed + " failed");
+        if (optimize) {
+            System.out.println("Optimized: " + Pipeline.sizeReport());
+        }
+        if (cache != null) {
+            System.out.println("Cache: " + cache.getHits() + " hit(s), " + cache.getMisses() + " miss(es), "
+                    + cache.getEvictions() + " eviction(s)");
+        }
+        if (watch) {
+            watch(roots, threads);
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void watch(List<Path> roots, int threads) {
+        try (Watcher watcher = new Watcher(threads, WATCH_DEBOUNCE, Main::report)) {
+            for (Path root : roots) {
+                watcher.register(root);
+            }
+            System.out.println("Watching for changes, press Ctrl+C to stop");
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println(e);
+            System.exit(1);
+        }
+    }
+
+    private static void report(Watcher.Recompilation recompilation) {
+        String outcome = !recompilation.result().isSuccessful() ? "failed"
+                : recompilation.written() ? "written" : "unchanged";
+        System.out.printf("%s: %s in %.1f ms (%.1f ms after the change)%n", recompilation.source(), outcome,
+                recompilation.compileNanos() / 1e6, recompilation.latencyNanos() / 1e6);
+        report(recompilation.source(), recompilation.result());
+    }
+
+    private static void report(Path source, CompilationResult result) {
+        for (String error : result.errors()) {
+            System.err.println(source + ": " + error);
+        }
+    }
+
+    private static int parseThreads(String value) {
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads >= 1) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+            // reported as invalid usage below
+        }
+        exitWithUsage();
+        return 0; // unreachable
+    }
+
+    private static void exitWithUsage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,220 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.IncrementalCompiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Recompiles {@code .icss} files below a set of directories whenever they change.
+ *
+ * <p>Editors often write a file several times per save, so events are
+ * coalesced: changed files are collected until no event arrived for the
+ * debounce interval, and every changed file is then recompiled once, on a
+ * pool with a fixed number of threads. Each file keeps its own
+ * {@link IncrementalCompiler}, so only the style rules affected by an edit,
+ * directly or through the global variables they use, are compiled again.
+ * The output file is only written when the generated CSS differs from what
+ * it already contains, so tools watching the CSS see no spurious changes.</p>
+ *
+ * <p>Every recompilation is reported to a listener with its timings.</p>
+ */
+public class Watcher implements AutoCloseable {
+
+    /**
+     * Outcome of recompiling one changed file.
+     *
+     * @param source       the recompiled ICSS file
+     * @param result       the result of the compilation
+     * @param written      whether the output file was written; false when compilation failed or the CSS did not change
+     * @param compileNanos time spent reading, compiling and writing the file
+     * @param latencyNanos time from the first change event for the file to the output being up to date
+     */
+    public record Recompilation(Path source, CompilationResult result, boolean written,
+                                long compileNanos, long latencyNanos) {
+    }
+
+    private final WatchService watchService;
+    private final ExecutorService pool;
+    private final long debounceNanos;
+    private final Consumer<Recompilation> listener;
+
+    //Only used by the thread running run()
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    //Compilers are not thread-safe, each is used under its own lock
+    private final Map<Path, IncrementalCompiler> compilers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a watcher without directories; add them with {@link #register(Path)}.
+     *
+     * @param threads  the number of files compiled concurrently
+     * @param debounce how long no change must be seen before changed files are recompiled
+     * @param listener receives every recompilation, on the compiling thread
+     */
+    public Watcher(int threads, Duration debounce, Consumer<Recompilation> listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.debounceNanos = debounce.toNanos();
+        this.listener = listener;
+    }
+
+    /**
+     * Watches the directory and all directories below it, including those created later.
+     * Must be called before {@link #run()}, or from the thread running it.
+     */
+    public void register(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : paths.filter(Files::isDirectory).toList()) {
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+            }
+        }
+    }
+
+    /**
+     * Processes change events until the watcher is closed or the thread is interrupted.
+     */
+    public void run() {
+        Map<Path, Long> changed = new LinkedHashMap<>();
+        long lastEvent = 0;
+        try {
+            while (true) {
+                WatchKey key;
+                if (changed.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long quiet = lastEvent + debounceNanos - System.nanoTime();
+                    key = quiet > 0 ? watchService.poll(quiet, TimeUnit.NANOSECONDS) : null;
+                }
+                if (key == null) {
+                    //Quiet for the debounce interval: recompile everything that changed
+                    changed.forEach((source, firstEvent) -> pool.execute(() -> recompile(source, firstEvent)));
+                    changed = new LinkedHashMap<>();
+                } else {
+                    lastEvent = System.nanoTime();
+                    collect(key, changed, lastEvent);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            //Closed by close()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching. Recompilations that were already started still finish.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        pool.shutdown();
+    }
+
+    private void collect(WatchKey key, Map<Path, Long> changed, long now) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null) {
+                break;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                //Events were lost, so consider every source in the directory changed
+                addSources(directory, changed, now);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    register(path);
+                } catch (IOException e) {
+                    //Removed again before it could be watched
+                }
+                //Files may have been created in it before it was registered
+                addSources(path, changed, now);
+            } else if (isSource(path)) {
+                changed.putIfAbsent(path, now);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private static void addSources(Path directory, Map<Path, Long> changed, long now) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.filter(Watcher::isSource).filter(Files::isRegularFile).forEach(path -> changed.putIfAbsent(path, now));
+        } catch (IOException e) {
+            //Removed in the meantime
+        }
+    }
+
+    private static boolean isSource(Path path) {
+        return path.getFileName().toString().endsWith(CompilationUnit.SOURCE_EXTENSION);
+    }
+
+    private void recompile(Path source, long firstEvent) {
+        IncrementalCompiler compiler = compilers.computeIfAbsent(source, _ -> new IncrementalCompiler());
+        synchronized (compiler) {
+            long start = System.nanoTime();
+            CompilationUnit unit = new CompilationUnit(source);
+            CompilationResult result;
+            boolean written = false;
+            try {
+                result = compiler.compile(Files.readString(source));
+                if (result.isSuccessful()) {
+                    written = writeIfChanged(unit.output(), result.css());
+                }
+            } catch (NoSuchFileException e) {
+                compilers.remove(source); // deleted, nothing to report
+                return;
+            } catch (IOException e) {
+                result = CompilationResult.failed(List.of("I/O error: " + e.getMessage()));
+            } catch (RuntimeException e) {
+                result = CompilationResult.failed(List.of("Internal error: " + e));
+            }
+            long end = System.nanoTime();
+            listener.accept(new Recompilation(source, result, written, end - start, end - firstEvent));
+        }
+    }
+
+    /**
+     * Writes the CSS to the output file unless the file already contains exactly these bytes.
+     *
+     * @return whether the file was written
+     */
+    private static boolean writeIfChanged(Path output, String css) throws IOException {
+        byte[] bytes = css.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (Files.size(output) == bytes.length && Arrays.equals(Files.readAllBytes(output), bytes)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            //First output for this source
+        }
+        Files.write(output, bytes);
+        return true;
+    }
+}
@@ -0,0 +1,262 @@
+package nl.han.ica.icss.daemon;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-running compiler that accepts requests over a Unix domain socket.
+ *
+ * <p>A one-off compilation spends most of its time starting the JVM, loading
+ * classes and letting ANTLR build the prediction DFA of the lexer and parser.
+ * The daemon pays that once: the DFA cache of the generated recognizers is
+ * shared by all their instances, and the daemon warms it up, together with the
+ * JIT, by compiling the bundled examples before it accepts connections.</p>
+ *
+ * <p>Every connection is served on a virtual thread and every request is
+ * compiled on a {@link Pipeline} of its own. Results are kept in an in-memory
+ * {@link CompilationCache}, so resubmitting an unchanged source is answered
+ * without compiling it again. See {@link Protocol} for the wire format and
+ * {@link DaemonClient} for the client side.</p>
+ *
+ * <pre>
+ * usage: CompileDaemon [--socket PATH]
+ * </pre>
+ */
+public final class CompileDaemon implements AutoCloseable {
+
+    private static final String USAGE = "usage: CompileDaemon [--socket PATH]";
+    private static final List<String> WARM_UP_SOURCES = List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss");
+    private static final int DEFAULT_WARM_UP_ROUNDS = 200;
+    private static final long CACHE_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final CompilationCache cache = new CompilationCache(CACHE_MEMORY_BYTES);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicLong requests = new AtomicLong();
+
+    private CompileDaemon(Path socket, ServerSocketChannel server) {
+        this.socket = socket;
+        this.server = server;
+    }
+
+    /**
+     * Returns the socket used when none is given: {@code icss/daemon.sock} in the
+     * per-user runtime directory {@code $XDG_RUNTIME_DIR}, or {@code .icss/daemon.sock}
+     * in the home directory where there is none. The daemon creates the
+     * directory, accessible only to the current user.
+     */
+    public static Path defaultSocket() {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        Path directory = runtime != null && !runtime.isEmpty()
+                ? Path.of(runtime, "icss")
+                : Path.of(System.getProperty("user.home"), ".icss");
+        return directory.resolve("daemon.sock");
+    }
+
+    /**
+     * Warms up the compiler, then starts accepting connections on the socket.
+     * A socket file left behind by a daemon that did not stop cleanly is replaced.
+     * The socket is made accessible only to the current user, and connections
+     * of other users are closed without an answer.
+     *
+     * @param socket       the path of the Unix domain socket to listen on
+     * @param warmUpRounds how often to compile the bundled examples first
+     * @return the running daemon
+     * @throws IOException if the socket cannot be bound, belongs to another user,
+     *                     or another daemon is listening on it
+     */
+    public static CompileDaemon start(Path socket, int warmUpRounds) throws IOException {
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            SocketOwnership.checkOwner(socket);
+            DaemonClient running = DaemonClient.tryConnect(socket);
+            if (running != null) {
+                running.close();
+                throw new IOException("A daemon is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+        warmUp(warmUpRounds);
+
+        SocketOwnership.createDirectory(socket);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            SocketOwnership.restrictToOwner(socket);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        CompileDaemon daemon = new CompileDaemon(socket, server);
+        Thread.ofPlatform().name("icss-daemon-accept").start(daemon::accept);
+        return daemon;
+    }
+
+    public Path getSocket() {
+        return socket;
+    }
+
+    /**
+     * Number of compile requests answered so far, including those answered from the cache.
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Blocks until the daemon is closed, either locally or by a shutdown request.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops accepting connections and removes the socket file. Requests that
+     * are being compiled are still answered.
+     */
+    @Override
+    public void close() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+        try {
+            server.close();
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            //Nothing left to do; a stale socket file is replaced by the next daemon
+        } finally {
+            connections.shutdown();
+            stopped.countDown();
+        }
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel connection = server.accept();
+                connections.execute(() -> serve(connection));
+            }
+        } catch (ClosedChannelException e) {
+            //Closed by close()
+        } catch (IOException e) {
+            System.err.println("Daemon stopped: " + e);
+            close();
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            if (SocketOwnership.isCurrentUser(connection)) {
+                serveRequests(connection);
+            }
+        } catch (IOException e) {
+            //Connection lost; the client falls back or reports it
+        }
+    }
+
+    private void serveRequests(SocketChannel connection) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    return; // client closed the connection
+                }
+                if (magic != Protocol.MAGIC) {
+                    return;
+                }
+                byte kind = in.readByte();
+                if (kind == Protocol.COMPILE) {
+                    Protocol.writeResult(out, compile(Protocol.readString(in)));
+                } else if (kind == Protocol.SHUTDOWN) {
+                    close();
+                    Protocol.writeResult(out, CompilationResult.streamed());
+                    return;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private CompilationResult compile(String source) {
+        requests.incrementAndGet();
+        try {
+            return cache.compile(source);
+        } catch (RuntimeException e) {
+            //A bug in one request must not take the daemon down
+            return CompilationResult.failed(List.of("Internal error: " + e));
+        }
+    }
+
+    private static void warmUp(int rounds) {
+        for (String resource : WARM_UP_SOURCES) {
+            String source = resource(resource);
+            for (int i = 0; i < rounds; i++) {
+                new Pipeline().compile(source);
+            }
+        }
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = CompileDaemon.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("Missing resource: " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args) {
+        Path socket = defaultSocket();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = Path.of(args[++i]);
+            } else {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        try {
+            CompileDaemon daemon = start(socket, DEFAULT_WARM_UP_ROUNDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+            System.out.println("Listening on " + daemon.getSocket());
+            daemon.awaitStop();
+            System.out.println("Stopped after " + daemon.getRequests() + " request(s)");
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
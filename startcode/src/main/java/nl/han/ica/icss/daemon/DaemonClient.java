@@ -0,0 +1,97 @@
+package nl.han.ica.icss.daemon;
+
+import nl.han.ica.icss.CompilationResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+/**
+ * A connection to a {@link CompileDaemon}. A connection sends one request at
+ * a time, so it must not be shared by threads; open a client per thread instead.
+ */
+public final class DaemonClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private DaemonClient(SocketChannel channel) {
+        this.channel = channel;
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Connects to the daemon listening on the socket. Sources are only sent to
+     * a daemon of the current user, so a socket of another user is refused.
+     *
+     * @throws IOException if no daemon is listening on it, or the socket or the
+     *                     daemon belongs to another user
+     */
+    public static DaemonClient connect(Path socket) throws IOException {
+        SocketOwnership.checkOwner(socket);
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            if (!SocketOwnership.isCurrentUser(channel)) {
+                throw new IOException("The daemon on " + socket + " runs as another user");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new DaemonClient(channel);
+    }
+
+    /**
+     * Connects to the daemon listening on the socket, if there is one of the
+     * current user.
+     *
+     * @return the connection, or {@code null} if no daemon of the current user is running
+     */
+    public static DaemonClient tryConnect(Path socket) {
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        try {
+            return connect(socket);
+        } catch (IOException e) {
+            return null; // stale socket file, or one of another user
+        }
+    }
+
+    /**
+     * Has the daemon compile the source.
+     *
+     * @param source the ICSS source text
+     * @return the generated CSS, or the errors of the first stage that failed
+     * @throws IOException if the connection to the daemon is lost
+     */
+    public CompilationResult compile(String source) throws IOException {
+        Protocol.writeRequest(out, Protocol.COMPILE, source);
+        return Protocol.readResult(in);
+    }
+
+    /**
+     * Asks the daemon to stop, and waits until it has stopped accepting connections.
+     */
+    public void shutdown() throws IOException {
+        Protocol.writeRequest(out, Protocol.SHUTDOWN, null);
+        Protocol.readResult(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,89 @@
+package nl.han.ica.icss.daemon;
+
+import nl.han.ica.icss.CompilationResult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The framed protocol between {@link DaemonClient} and {@link CompileDaemon}.
+ *
+ * <p>A connection carries any number of requests, each answered before the
+ * next is sent. All integers are big-endian, strings are a length followed by
+ * that many UTF-8 bytes.</p>
+ * <pre>
+ * request:  int magic, byte kind, [kind COMPILE: string source]
+ * response: boolean successful, int count, count * string (the CSS, or the errors)
+ * </pre>
+ * A {@code SHUTDOWN} request is answered with a successful response without
+ * strings, after which the daemon stops.
+ */
+final class Protocol {
+
+    static final int MAGIC = 0x49435344; // "ICSD"
+    static final byte COMPILE = 1;
+    static final byte SHUTDOWN = 2;
+
+    //Refuse frames that cannot be a stylesheet, rather than allocating whatever a peer claims
+    private static final int MAX_STRING_BYTES = 256 * 1024 * 1024;
+
+    private Protocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, byte kind, String source) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(kind);
+        if (kind == COMPILE) {
+            writeString(out, source);
+        }
+        out.flush();
+    }
+
+    static void writeResult(DataOutputStream out, CompilationResult result) throws IOException {
+        out.writeBoolean(result.isSuccessful());
+        List<String> strings = result.isSuccessful()
+                ? result.css() == null ? List.of() : List.of(result.css())
+                : result.errors();
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+        out.flush();
+    }
+
+    static CompilationResult readResult(DataInputStream in) throws IOException {
+        boolean successful = in.readBoolean();
+        int count = in.readInt();
+        if (count < 0 || (successful && count > 1)) {
+            throw new IOException("Malformed response");
+        }
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(in));
+        }
+        if (!successful) {
+            return CompilationResult.failed(strings);
+        }
+        return count == 0 ? CompilationResult.streamed() : CompilationResult.succeeded(strings.getFirst());
+    }
+
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package nl.han.ica.icss.daemon;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Keeps the daemon socket to the user that started the daemon.
+ *
+ * <p>A socket of another user could be a daemon that reads the sources sent to
+ * it and returns CSS of its choosing, and a daemon that accepts other users
+ * can be stopped by them. So the socket is only accessible to its owner, a
+ * socket file of another user is never connected to or replaced, and both
+ * sides check the user on the other end of a connection where the platform
+ * reports it.</p>
+ */
+final class SocketOwnership {
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private SocketOwnership() {
+    }
+
+    /**
+     * Creates the directory of a socket, and any missing parents, accessible
+     * only to the current user. An existing directory is left as it is.
+     */
+    static void createDirectory(Path socket) throws IOException {
+        Path directory = socket.toAbsolutePath().getParent();
+        if (directory == null || Files.isDirectory(directory)) {
+            return;
+        }
+        if (POSIX) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Makes a bound socket accessible only to the current user.
+     */
+    static void restrictToOwner(Path socket) throws IOException {
+        if (POSIX) {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    /**
+     * Checks that an existing socket file belongs to the current user, so it is
+     * neither connected to nor replaced if another user created it.
+     *
+     * @throws IOException if it belongs to another user
+     */
+    static void checkOwner(Path socket) throws IOException {
+        UserPrincipal owner = Files.getOwner(socket, LinkOption.NOFOLLOW_LINKS);
+        if (!owner.equals(currentUser())) {
+            throw new IOException(socket + " belongs to " + owner.getName() + ", not to the current user");
+        }
+    }
+
+    /**
+     * Whether the process on the other end of a connection runs as the current
+     * user. Where the platform does not report it, the permissions of the
+     * socket file are relied on instead.
+     */
+    static boolean isCurrentUser(SocketChannel connection) throws IOException {
+        UnixDomainPrincipal peer;
+        try {
+            peer = connection.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        } catch (UnsupportedOperationException e) {
+            return true;
+        }
+        return peer.user().equals(currentUser());
+    }
+
+    private static UserPrincipal currentUser() throws IOException {
+        return FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+    }
+}
@@ -0,0 +1,464 @@
+package nl.han.ica.icss.flat;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An AST stored as columns of primitive arrays instead of one object per node.
+ *
+ * <p>Nodes are numbered in pre-order, starting with the stylesheet at 0, so the
+ * subtree of a node is the range from the node up to its {@link #end}. The
+ * first child of a node directly follows it, and the next sibling of a child
+ * starts at the end of the child. Per node, the columns hold:</p>
+ * <ul>
+ *   <li>{@link #kind}: one of the kind constants below, in a {@code byte[]};</li>
+ *   <li>{@link #end}: the end of its subtree, in an {@code int[]};</li>
+ *   <li>{@link #value}: the value of a pixel, percentage or scalar literal,
+ *   1 or 0 for a boolean, or the index in the {@link StringPool} of the
+ *   name, selector or color, in an {@code int[]}.</li>
+ * </ul>
+ * <p>That is nine bytes per node, against an object header, fields and often an
+ * {@code ArrayList} per node for {@link ASTNode}s. Errors of the checker are
+ * rare, so they are kept in a sparse map.</p>
+ *
+ * <p>The children of each kind are the same as those of the corresponding
+ * {@link ASTNode}, in the same order. Fields that an incomplete parse left
+ * null are stored as a {@link #NONE} node, so a declaration always has its
+ * property and its expression as first and second child, an assignment its
+ * name and expression, an if-clause its condition, and an operation its
+ * left and right operand. An if-clause ends with its else-clause, if any.</p>
+ *
+ * <p>{@link #fromAST} and {@link #toAST} convert from and to the object form,
+ * e.g. to show a flat AST in the GUI. Nodes are appended with {@link #begin}
+ * and {@link #finish}, or {@link #leaf} for nodes without children.</p>
+ */
+public final class FlatAST {
+
+    public static final byte NONE = 0;
+    public static final byte STYLESHEET = 1;
+    public static final byte STYLE_RULE = 2;
+    public static final byte DECLARATION = 3;
+    public static final byte VARIABLE_ASSIGNMENT = 4;
+    public static final byte IF_CLAUSE = 5;
+    public static final byte ELSE_CLAUSE = 6;
+    public static final byte PROPERTY_NAME = 7;
+    public static final byte VARIABLE_REFERENCE = 8;
+    public static final byte TAG_SELECTOR = 9;
+    public static final byte CLASS_SELECTOR = 10;
+    public static final byte ID_SELECTOR = 11;
+    public static final byte BOOL_LITERAL = 12;
+    public static final byte COLOR_LITERAL = 13;
+    public static final byte PERCENTAGE_LITERAL = 14;
+    public static final byte PIXEL_LITERAL = 15;
+    public static final byte SCALAR_LITERAL = 16;
+    public static final byte ADD_OPERATION = 17;
+    public static final byte SUBTRACT_OPERATION = 18;
+    public static final byte MULTIPLY_OPERATION = 19;
+
+    private final StringPool strings;
+    private byte[] kinds;
+    private int[] ends;
+    private int[] values;
+    private int size = 0;
+    private final TreeMap<Integer, String> errors = new TreeMap<>();
+
+    public FlatAST() {
+        this(new StringPool(), 64);
+    }
+
+    /**
+     * Creates an empty AST that stores its strings in the given pool, which
+     * may be shared with other ASTs.
+     *
+     * @param strings  the pool of names, selectors and colors
+     * @param capacity the number of nodes to allocate room for
+     */
+    public FlatAST(StringPool strings, int capacity) {
+        this.strings = strings;
+        capacity = Math.max(capacity, 1);
+        kinds = new byte[capacity];
+        ends = new int[capacity];
+        values = new int[capacity];
+    }
+
+    public StringPool strings() {
+        return strings;
+    }
+
+    /**
+     * Number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    public byte kind(int node) {
+        return kinds[node];
+    }
+
+    public int value(int node) {
+        return values[node];
+    }
+
+    /**
+     * The string a node refers to through its value.
+     */
+    public String string(int node) {
+        return strings.get(values[node]);
+    }
+
+    /**
+     * The node after the subtree of the given node.
+     */
+    public int end(int node) {
+        return ends[node];
+    }
+
+    /**
+     * The first child of a node, or -1 if it has none.
+     */
+    public int firstChild(int node) {
+        return node + 1 < ends[node] ? node + 1 : -1;
+    }
+
+    /**
+     * The sibling after a child of the given parent, or -1 if it is the last child.
+     */
+    public int nextSibling(int parent, int child) {
+        return ends[child] < ends[parent] ? ends[child] : -1;
+    }
+
+    /**
+     * The {@code index}-th child of a node, or -1 if it has fewer children.
+     */
+    public int child(int node, int index) {
+        int child = firstChild(node);
+        for (int i = 0; i < index && child != -1; i++) {
+            child = nextSibling(node, child);
+        }
+        return child;
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild(node); child != -1; child = nextSibling(node, child)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Records an error on a node, replacing an earlier one, like {@link ASTNode#setError}.
+     */
+    public void setError(int node, String description) {
+        errors.put(node, description);
+    }
+
+    /**
+     * The error recorded on a node, or null.
+     */
+    public String error(int node) {
+        return errors.get(node);
+    }
+
+    /**
+     * All errors in node order, which is the order of {@link AST#getErrors()}.
+     */
+    public List<SemanticError> getErrors() {
+        List<SemanticError> result = new ArrayList<>(errors.size());
+        for (String description : errors.values()) {
+            result.add(new SemanticError(description));
+        }
+        return result;
+    }
+
+    /**
+     * The label {@link ASTNode#getNodeLabel()} gives the same node.
+     */
+    public String label(int node) {
+        return switch (kinds[node]) {
+            case STYLESHEET -> "Stylesheet";
+            case STYLE_RULE -> "StyleRule";
+            case DECLARATION -> "Declaration";
+            case VARIABLE_ASSIGNMENT -> "VariableAssignment (" + string(child(node, 0)) + ")";
+            case IF_CLAUSE -> "If_Clause";
+            case ELSE_CLAUSE -> "Else_Clause";
+            case PROPERTY_NAME -> "Property: (" + string(node) + ")";
+            case VARIABLE_REFERENCE -> "VariableReference (" + string(node) + ")";
+            case TAG_SELECTOR -> "TagSelector " + string(node);
+            case CLASS_SELECTOR -> "ClassSelector " + string(node);
+            case ID_SELECTOR -> "IdSelector " + string(node);
+            case BOOL_LITERAL -> "Bool Literal (" + (values[node] != 0 ? "TRUE" : "FALSE") + ")";
+            case COLOR_LITERAL -> "Color literal (" + string(node) + ")";
+            case PERCENTAGE_LITERAL -> "Percentage literal (" + values[node] + ")";
+            case PIXEL_LITERAL -> "Pixel literal (" + values[node] + ")";
+            case SCALAR_LITERAL -> "Scalar literal (" + values[node] + ")";
+            case ADD_OPERATION -> "Add";
+            case SUBTRACT_OPERATION -> "Subtract";
+            case MULTIPLY_OPERATION -> "Multiply";
+            default -> "ASTNode";
+        };
+    }
+
+    /**
+     * Appends a node whose children follow; {@link #finish} it after its last child.
+     *
+     * @return the new node
+     */
+    public int begin(byte kind, int value) {
+        if (size == kinds.length) {
+            int capacity = Math.max(16, size * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        kinds[size] = kind;
+        values[size] = value;
+        ends[size] = size + 1;
+        return size++;
+    }
+
+    /**
+     * Closes a node begun with {@link #begin}: all nodes appended since are its descendants.
+     */
+    public void finish(int node) {
+        ends[node] = size;
+    }
+
+    /**
+     * Appends a node without children.
+     */
+    public int leaf(byte kind, int value) {
+        return begin(kind, value);
+    }
+
+    /**
+     * Appends a node without children that refers to a string.
+     */
+    public int leaf(byte kind, String string) {
+        return begin(kind, strings.intern(string));
+    }
+
+    /**
+     * Shrinks the columns to the number of nodes, once no more nodes are appended.
+     */
+    public void trimToSize() {
+        if (size < kinds.length) {
+            kinds = Arrays.copyOf(kinds, size);
+            ends = Arrays.copyOf(ends, size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Copies the subtree of a node of another AST that uses the same pool,
+     * including its errors.
+     */
+    public int copy(FlatAST from, int node) {
+        int offset = size - node;
+        int end = from.ends[node];
+        for (int i = node; i < end; i++) {
+            begin(from.kinds[i], from.values[i]);
+            ends[i + offset] = from.ends[i] + offset;
+        }
+        for (Map.Entry<Integer, String> error : from.errors.subMap(node, end).entrySet()) {
+            errors.put(error.getKey() + offset, error.getValue());
+        }
+        return node + offset;
+    }
+
+    /**
+     * Converts an AST of {@link ASTNode}s, including the errors on its nodes.
+     *
+     * @throws IllegalArgumentException if it contains a kind of node that has no flat kind
+     */
+    public static FlatAST fromAST(AST ast) {
+        FlatAST flat = new FlatAST();
+        if (ast.root != null) {
+            flat.append(ast.root);
+        }
+        flat.trimToSize();
+        return flat;
+    }
+
+    private void append(ASTNode node) {
+        if (node == null) {
+            leaf(NONE, 0);
+            return;
+        }
+        int index = switch (node) {
+            case PropertyName property -> leaf(PROPERTY_NAME, property.name);
+            case VariableReference reference -> leaf(VARIABLE_REFERENCE, reference.name);
+            case TagSelector selector -> leaf(TAG_SELECTOR, selector.tag);
+            case ClassSelector selector -> leaf(CLASS_SELECTOR, selector.cls);
+            case IdSelector selector -> leaf(ID_SELECTOR, selector.id);
+            case BoolLiteral bool -> leaf(BOOL_LITERAL, bool.value ? 1 : 0);
+            case ColorLiteral color -> leaf(COLOR_LITERAL, color.value);
+            case PercentageLiteral percentage -> leaf(PERCENTAGE_LITERAL, percentage.value);
+            case PixelLiteral pixels -> leaf(PIXEL_LITERAL, pixels.value);
+            case ScalarLiteral scalar -> leaf(SCALAR_LITERAL, scalar.value);
+            default -> {
+                int parent = begin(kindOf(node), 0);
+                switch (node) {
+                    case StyleSheet sheet -> appendAll(sheet.body);
+                    case StyleRule rule -> {
+                        appendAll(rule.selectors);
+                        appendAll(rule.body);
+                    }
+                    case Declaration decl -> {
+                        append(decl.property);
+                        append(decl.expression);
+                    }
+                    case VariableAssignment assignment -> {
+                        append(assignment.name);
+                        append(assignment.expression);
+                    }
+                    case IfClause ifc -> {
+                        append(ifc.conditionalExpression);
+                        appendAll(ifc.body);
+                        if (ifc.elseClause != null) {
+                            append(ifc.elseClause);
+                        }
+                    }
+                    case ElseClause elseClause -> appendAll(elseClause.body);
+                    case Operation operation -> {
+                        append(operation.lhs);
+                        append(operation.rhs);
+                    }
+                    default -> throw new IllegalStateException(); // kindOf accepted it
+                }
+                finish(parent);
+                yield parent;
+            }
+        };
+        if (node.hasError()) {
+            setError(index, node.getError().description);
+        }
+    }
+
+    private void appendAll(List<? extends ASTNode> nodes) {
+        for (ASTNode node : nodes) {
+            append(node);
+        }
+    }
+
+    private static byte kindOf(ASTNode node) {
+        return switch (node) {
+            case StyleSheet _ -> STYLESHEET;
+            case StyleRule _ -> STYLE_RULE;
+            case Declaration _ -> DECLARATION;
+            case VariableAssignment _ -> VARIABLE_ASSIGNMENT;
+            case IfClause _ -> IF_CLAUSE;
+            case ElseClause _ -> ELSE_CLAUSE;
+            case AddOperation _ -> ADD_OPERATION;
+            case SubtractOperation _ -> SUBTRACT_OPERATION;
+            case MultiplyOperation _ -> MULTIPLY_OPERATION;
+            default -> throw new IllegalArgumentException("No flat kind for " + node.getClass().getName());
+        };
+    }
+
+    /**
+     * Converts to an AST of {@link ASTNode}s, including the errors.
+     */
+    public AST toAST() {
+        return size == 0 ? new AST(null) : new AST((StyleSheet) toNode(0));
+    }
+
+    /**
+     * Converts the subtree of a node to {@link ASTNode}s.
+     */
+    public ASTNode toNode(int node) {
+        ASTNode result = switch (kinds[node]) {
+            case NONE -> null;
+            case STYLESHEET -> new StyleSheet();
+            case STYLE_RULE -> new StyleRule();
+            case DECLARATION -> {
+                Declaration decl = new Declaration();
+                decl.property = (PropertyName) toNode(child(node, 0));
+                decl.expression = (Expression) toNode(child(node, 1));
+                yield decl;
+            }
+            case VARIABLE_ASSIGNMENT -> {
+                VariableAssignment assignment = new VariableAssignment();
+                assignment.name = (VariableReference) toNode(child(node, 0));
+                assignment.expression = (Expression) toNode(child(node, 1));
+                yield assignment;
+            }
+            case IF_CLAUSE -> new IfClause();
+            case ELSE_CLAUSE -> new ElseClause();
+            case PROPERTY_NAME -> new PropertyName(string(node));
+            case VARIABLE_REFERENCE -> new VariableReference(string(node));
+            case TAG_SELECTOR -> new TagSelector(string(node));
+            case CLASS_SELECTOR -> new ClassSelector(string(node));
+            case ID_SELECTOR -> new IdSelector(string(node));
+            case BOOL_LITERAL -> new BoolLiteral(values[node] != 0);
+            case COLOR_LITERAL -> new ColorLiteral(string(node));
+            case PERCENTAGE_LITERAL -> new PercentageLiteral(values[node]);
+            case PIXEL_LITERAL -> new PixelLiteral(values[node]);
+            case SCALAR_LITERAL -> new ScalarLiteral(values[node]);
+            case ADD_OPERATION -> operation(new AddOperation(), node);
+            case SUBTRACT_OPERATION -> operation(new SubtractOperation(), node);
+            case MULTIPLY_OPERATION -> operation(new MultiplyOperation(), node);
+            default -> throw new IllegalStateException("Unknown node kind " + kinds[node]);
+        };
+        switch (result) {
+            case StyleSheet sheet -> {
+                for (int child = firstChild(node); child != -1; child = nextSibling(node, child)) {
+                    sheet.body.add(toNode(child));
+                }
+            }
+            case StyleRule rule -> {
+                for (int child = firstChild(node); child != -1; child = nextSibling(node, child)) {
+                    ASTNode converted = toNode(child);
+                    if (converted instanceof Selector selector) {
+                        rule.selectors.add(selector);
+                    } else {
+                        rule.body.add(converted);
+                    }
+                }
+            }
+            case IfClause ifc -> {
+                int condition = firstChild(node);
+                ifc.conditionalExpression = (Expression) toNode(condition);
+                for (int child = nextSibling(node, condition); child != -1; child = nextSibling(node, child)) {
+                    ASTNode converted = toNode(child);
+                    if (converted instanceof ElseClause elseClause) {
+                        ifc.elseClause = elseClause;
+                    } else {
+                        ifc.body.add(converted);
+                    }
+                }
+            }
+            case ElseClause elseClause -> {
+                for (int child = firstChild(node); child != -1; child = nextSibling(node, child)) {
+                    elseClause.body.add(toNode(child));
+                }
+            }
+            case null, default -> {}
+        }
+        String error = errors.get(node);
+        if (result != null && error != null) {
+            result.setError(error);
+        }
+        return result;
+    }
+
+    private Operation operation(Operation operation, int node) {
+        operation.lhs = (Expression) toNode(child(node, 0));
+        operation.rhs = (Expression) toNode(child(node, 1));
+        return operation;
+    }
+}
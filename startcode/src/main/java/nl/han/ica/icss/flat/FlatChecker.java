@@ -0,0 +1,177 @@
+package nl.han.ica.icss.flat;
+
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.PropertyRules;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.scoping.IScopeManager;
+import nl.han.ica.icss.scoping.ScopeManager;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ast.types.ExpressionType.*;
+import static nl.han.ica.icss.flat.FlatAST.*;
+
+/**
+ * The {@link Checker} for a {@link FlatAST}: applies the same rules and records
+ * the same errors, on the same nodes.
+ */
+public class FlatChecker {
+
+    private static final EnumSet<ExpressionType> NON_NUMERIC_TYPES = EnumSet.of(BOOL, COLOR);
+
+    /**
+     * Creates the scope manager for each check.
+     */
+    private final Supplier<? extends IScopeManager<ExpressionType>> scopeManagers;
+
+    public FlatChecker() {
+        this(ScopeManager::new);
+    }
+
+    public FlatChecker(Supplier<? extends IScopeManager<ExpressionType>> scopeManagers) {
+        this.scopeManagers = scopeManagers;
+    }
+
+    /**
+     * Checks the AST and records errors on its nodes.
+     */
+    public void check(FlatAST ast) {
+        if (ast.size() == 0) {
+            return;
+        }
+        Check check = new Check(ast, scopeManagers.get());
+        check.scopes.inNewScope(() -> check.body(0, ast.firstChild(0)));
+    }
+
+    /**
+     * The state of a single check.
+     */
+    private static final class Check {
+
+        private final FlatAST ast;
+        private final IScopeManager<ExpressionType> scopes;
+
+        Check(FlatAST ast, IScopeManager<ExpressionType> scopes) {
+            this.ast = ast;
+            this.scopes = scopes;
+        }
+
+        /**
+         * Checks the children of a parent from the given child on.
+         */
+        void body(int parent, int from) {
+            for (int child = from; child != -1; child = ast.nextSibling(parent, child)) {
+                switch (ast.kind(child)) {
+                    case VARIABLE_ASSIGNMENT -> variableAssignment(child);
+                    case DECLARATION -> declaration(child);
+                    case IF_CLAUSE -> ifClause(child);
+                    case STYLE_RULE -> styleRule(child);
+                    default -> {} // selectors, else-clauses
+                }
+            }
+        }
+
+        private void styleRule(int rule) {
+            scopes.inNewScope(() -> body(rule, ast.firstChild(rule)));
+        }
+
+        private void ifClause(int ifc) {
+            int condition = ast.firstChild(ifc);
+            if (ast.kind(condition) == NONE) {
+                ast.setError(ifc, "If-condition is missing");
+            } else {
+                ExpressionType type = resolve(condition);
+                if (type != BOOL) {
+                    ast.setError(ifc, "If-condition must be a boolean, but got: " + type);
+                }
+            }
+
+            scopes.inNewScope(() -> body(ifc, ast.nextSibling(ifc, condition)));
+
+            for (int child = condition; child != -1; child = ast.nextSibling(ifc, child)) {
+                if (ast.kind(child) == ELSE_CLAUSE) {
+                    int elseClause = child;
+                    scopes.inNewScope(() -> body(elseClause, ast.firstChild(elseClause)));
+                }
+            }
+        }
+
+        private void variableAssignment(int assignment) {
+            int name = ast.firstChild(assignment);
+            ExpressionType type = resolve(ast.nextSibling(assignment, name));
+            String varName = ast.string(name);
+            if (!scopes.declareIfAbsent(varName, type)) {
+                ast.setError(assignment, "Variable '" + varName + "' redeclared in the same scope");
+            }
+        }
+
+        private void declaration(int decl) {
+            int property = ast.firstChild(decl);
+            int expression = ast.nextSibling(decl, property);
+            String propertyName = ast.kind(property) == NONE ? null : ast.string(property);
+            Set<ExpressionType> allowed = propertyName == null ? null : PropertyRules.allowedTypesFor(propertyName);
+
+            if (allowed == null) {
+                ast.setError(decl, "Unknown property '" + propertyName + "'");
+                return;
+            }
+            if (ast.kind(expression) == NONE) {
+                ast.setError(decl, "Property '" + propertyName + "' must have a value");
+                return;
+            }
+
+            ExpressionType actualType = resolve(expression);
+            if (actualType == UNDEFINED) {
+                return;
+            }
+            if (!allowed.contains(actualType)) {
+                ast.setError(decl, "Invalid value type '" + actualType + "' for property '" + propertyName + "'");
+            }
+        }
+
+        private ExpressionType resolve(int expr) {
+            return switch (ast.kind(expr)) {
+                case PIXEL_LITERAL -> PIXEL;
+                case SCALAR_LITERAL -> SCALAR;
+                case BOOL_LITERAL -> BOOL;
+                case PERCENTAGE_LITERAL -> PERCENTAGE;
+                case COLOR_LITERAL -> COLOR;
+                case VARIABLE_REFERENCE -> {
+                    ExpressionType type = scopes.resolve(ast.string(expr));
+                    if (type == null) {
+                        ast.setError(expr, "Unknown variable '" + ast.string(expr) + "'");
+                        yield UNDEFINED;
+                    }
+                    yield type;
+                }
+                case ADD_OPERATION, SUBTRACT_OPERATION, MULTIPLY_OPERATION -> operation(expr);
+                default -> UNDEFINED; // missing after a syntax error
+            };
+        }
+
+        private ExpressionType operation(int op) {
+            int lhs = ast.firstChild(op);
+            ExpressionType left = resolve(lhs);
+            ExpressionType right = resolve(ast.nextSibling(op, lhs));
+
+            if (left == UNDEFINED || right == UNDEFINED) return UNDEFINED;
+
+            if (ast.kind(op) == MULTIPLY_OPERATION) {
+                boolean containsNoScalar = left != SCALAR && right != SCALAR;
+                boolean containsNonNumeric = NON_NUMERIC_TYPES.contains(left) || NON_NUMERIC_TYPES.contains(right);
+                if (containsNoScalar || containsNonNumeric) {
+                    ast.setError(op, "Can't Multiply " + left + " with " + right);
+                    return UNDEFINED;
+                }
+                return left == SCALAR ? right : left;
+            }
+            if (left != right || NON_NUMERIC_TYPES.contains(left)) {
+                ast.setError(op, "Invalid operands for " + ast.label(op) + ": " + left + " and " + right);
+                return UNDEFINED;
+            }
+            return left;
+        }
+    }
+}
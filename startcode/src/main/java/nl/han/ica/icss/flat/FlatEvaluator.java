@@ -0,0 +1,166 @@
+package nl.han.ica.icss.flat;
+
+import nl.han.ica.icss.transforms.Evaluator;
+
+import static nl.han.ica.icss.flat.FlatAST.*;
+
+/**
+ * The {@link Evaluator} for a {@link FlatAST}: resolves variables, evaluates
+ * expressions to literals and replaces if-clauses by their active branch.
+ *
+ * <p>The input is left untouched. The evaluated AST is written into a new
+ * {@link FlatAST} in a single pass and shares the string pool of the input.
+ * During evaluation a literal is a {@code long} holding its kind in the high
+ * and its value in the low 32 bits, and variables are kept in
+ * {@link LongScopes} by the pool index of their name, so no objects are
+ * created per expression or variable.</p>
+ */
+public class FlatEvaluator {
+
+    /**
+     * Evaluates a checked AST.
+     *
+     * @param ast a checked AST, which is left as it is
+     * @return the evaluated AST
+     */
+    public FlatAST transform(FlatAST ast) {
+        FlatAST result = new FlatAST(ast.strings(), ast.size());
+        if (ast.size() == 0) {
+            return result;
+        }
+        Evaluation evaluation = new Evaluation(ast, result, new LongScopes(ast.strings().size()));
+        int sheet = result.begin(STYLESHEET, 0);
+        evaluation.scopes.enterScope();
+        evaluation.body(0, ast.firstChild(0));
+        evaluation.scopes.exitScope();
+        result.finish(sheet);
+        result.trimToSize();
+        return result;
+    }
+
+    /**
+     * The state of a single evaluation.
+     */
+    private static final class Evaluation {
+
+        private final FlatAST ast;
+        private final FlatAST result;
+        private final LongScopes scopes;
+
+        Evaluation(FlatAST ast, FlatAST result, LongScopes scopes) {
+            this.ast = ast;
+            this.result = result;
+            this.scopes = scopes;
+        }
+
+        /**
+         * Appends the evaluated children of a parent, from the given child on.
+         * The else-clause of an if-clause is not part of its body and is skipped.
+         */
+        void body(int parent, int from) {
+            for (int child = from; child != -1; child = ast.nextSibling(parent, child)) {
+                switch (ast.kind(child)) {
+                    case VARIABLE_ASSIGNMENT -> {
+                        int name = ast.firstChild(child);
+                        scopes.declare(ast.value(name), evaluate(ast.nextSibling(child, name)));
+                    }
+                    case DECLARATION -> declaration(child);
+                    case STYLE_RULE -> styleRule(child);
+                    case IF_CLAUSE -> ifClause(child);
+                    case ELSE_CLAUSE -> {}
+                    default -> result.copy(ast, child);
+                }
+            }
+        }
+
+        private void styleRule(int rule) {
+            int node = result.begin(STYLE_RULE, 0);
+            int child = ast.firstChild(rule);
+            while (child != -1 && isSelector(ast.kind(child))) {
+                result.copy(ast, child);
+                child = ast.nextSibling(rule, child);
+            }
+            scopes.enterScope();
+            body(rule, child);
+            scopes.exitScope();
+            result.finish(node);
+        }
+
+        private void declaration(int decl) {
+            int node = result.begin(DECLARATION, 0);
+            int property = ast.firstChild(decl);
+            result.copy(ast, property);
+            long literal = evaluate(ast.nextSibling(decl, property));
+            result.leaf(kindOf(literal), valueOf(literal));
+            result.finish(node);
+        }
+
+        private void ifClause(int ifc) {
+            int condition = ast.firstChild(ifc);
+            if (valueOf(evaluate(condition)) != 0) {
+                scopes.enterScope();
+                body(ifc, ast.nextSibling(ifc, condition));
+                scopes.exitScope();
+                return;
+            }
+            for (int child = condition; child != -1; child = ast.nextSibling(ifc, child)) {
+                if (ast.kind(child) == ELSE_CLAUSE) {
+                    scopes.enterScope();
+                    body(child, ast.firstChild(child));
+                    scopes.exitScope();
+                }
+            }
+        }
+
+        private long evaluate(int expr) {
+            return switch (ast.kind(expr)) {
+                case VARIABLE_REFERENCE -> scopes.resolve(ast.value(expr), literal(NONE, 0));
+                case ADD_OPERATION, SUBTRACT_OPERATION, MULTIPLY_OPERATION -> {
+                    int lhs = ast.firstChild(expr);
+                    yield arithmetic(ast.kind(expr), evaluate(lhs), evaluate(ast.nextSibling(expr, lhs)));
+                }
+                default -> literal(ast.kind(expr), ast.value(expr));
+            };
+        }
+
+        /**
+         * Combines two literals like {@code LiteralArithmetic}, or returns a
+         * {@link FlatAST#NONE} literal if their kinds cannot be combined.
+         */
+        private static long arithmetic(byte operation, long lhs, long rhs) {
+            byte left = kindOf(lhs);
+            byte right = kindOf(rhs);
+            int l = valueOf(lhs);
+            int r = valueOf(rhs);
+            if (operation == MULTIPLY_OPERATION) {
+                if (right == SCALAR_LITERAL && (left == PIXEL_LITERAL || left == PERCENTAGE_LITERAL || left == SCALAR_LITERAL)) {
+                    return literal(left, l * r);
+                }
+                if (left == SCALAR_LITERAL && (right == PIXEL_LITERAL || right == PERCENTAGE_LITERAL)) {
+                    return literal(right, l * r);
+                }
+                return literal(NONE, 0);
+            }
+            if (left != right || (left != PIXEL_LITERAL && left != PERCENTAGE_LITERAL && left != SCALAR_LITERAL)) {
+                return literal(NONE, 0);
+            }
+            return literal(left, operation == ADD_OPERATION ? l + r : l - r);
+        }
+
+        private static boolean isSelector(byte kind) {
+            return kind == TAG_SELECTOR || kind == CLASS_SELECTOR || kind == ID_SELECTOR;
+        }
+
+        private static long literal(byte kind, int value) {
+            return ((long) kind << 32) | (value & 0xFFFFFFFFL);
+        }
+
+        private static byte kindOf(long literal) {
+            return (byte) (literal >>> 32);
+        }
+
+        private static int valueOf(long literal) {
+            return (int) literal;
+        }
+    }
+}
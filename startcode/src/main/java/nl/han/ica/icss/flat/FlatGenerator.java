@@ -0,0 +1,102 @@
+package nl.han.ica.icss.flat;
+
+import nl.han.ica.icss.generator.Generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static nl.han.ica.icss.flat.FlatAST.*;
+
+/**
+ * The {@link Generator} for an evaluated {@link FlatAST}: produces the same CSS
+ * for the same stylesheet.
+ */
+public class FlatGenerator {
+
+    private static final String IDENT = "  ";
+
+    /**
+     * Number of characters collected before they are handed to the output.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    public String generate(FlatAST ast) {
+        StringBuilder css = new StringBuilder();
+        try {
+            generate(ast, css);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder does not throw
+        }
+        return css.toString();
+    }
+
+    /**
+     * Generates CSS rule by rule into the given output, in chunks of bounded size.
+     *
+     * @param ast the evaluated AST
+     * @param out the output to append the CSS to
+     * @throws IOException if appending to the output fails
+     */
+    public void generate(FlatAST ast, Appendable out) throws IOException {
+        StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+        if (ast.size() > 0) {
+            boolean first = true;
+            for (int rule = ast.firstChild(0); rule != -1; rule = ast.nextSibling(0, rule)) {
+                if (ast.kind(rule) == STYLE_RULE) {
+                    if (!first) {
+                        buffer.append("\n");
+                    }
+                    first = false;
+                    generateStyleRule(ast, rule, buffer);
+                    if (buffer.length() >= BUFFER_SIZE) {
+                        out.append(buffer);
+                        buffer.setLength(0);
+                    }
+                }
+            }
+        }
+        out.append(buffer);
+    }
+
+    private void generateStyleRule(FlatAST ast, int rule, StringBuilder css) {
+        for (int child = ast.firstChild(rule); child != -1 && isSelector(ast.kind(child)); child = ast.nextSibling(rule, child)) {
+            if (child != ast.firstChild(rule)) {
+                css.append(", ");
+            }
+            appendSelector(ast, child, css);
+        }
+        css.append(" {\n");
+        for (int child = ast.firstChild(rule); child != -1; child = ast.nextSibling(rule, child)) {
+            if (ast.kind(child) == DECLARATION) {
+                int property = ast.firstChild(child);
+                css.append(IDENT).append(ast.string(property)).append(": ");
+                appendLiteral(ast, ast.nextSibling(child, property), css);
+                css.append(";\n");
+            }
+        }
+        css.append("}");
+    }
+
+    private void appendSelector(FlatAST ast, int selector, StringBuilder css) {
+        switch (ast.kind(selector)) {
+            case TAG_SELECTOR -> css.append(ast.string(selector));
+            case ID_SELECTOR -> css.append('#').append(ast.string(selector));
+            case CLASS_SELECTOR -> css.append('.').append(ast.string(selector));
+            default -> css.append(ast.label(selector));
+        }
+    }
+
+    private static boolean isSelector(byte kind) {
+        return kind == TAG_SELECTOR || kind == CLASS_SELECTOR || kind == ID_SELECTOR;
+    }
+
+    private void appendLiteral(FlatAST ast, int literal, StringBuilder css) {
+        switch (ast.kind(literal)) {
+            case PIXEL_LITERAL -> css.append(ast.value(literal)).append("px");
+            case PERCENTAGE_LITERAL -> css.append(ast.value(literal)).append('%');
+            case COLOR_LITERAL -> css.append(ast.string(literal));
+            case SCALAR_LITERAL -> css.append(ast.value(literal));
+            default -> css.append(ast.label(literal));
+        }
+    }
+}
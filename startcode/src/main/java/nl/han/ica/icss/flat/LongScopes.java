@@ -0,0 +1,100 @@
+package nl.han.ica.icss.flat;
+
+import java.util.Arrays;
+
+/**
+ * Scopes of {@code long} values for the {@link FlatEvaluator}, keyed by the
+ * index of a name in the {@link StringPool}.
+ *
+ * <p>Works like {@link nl.han.ica.icss.scoping.FlatScopeManager}: all bindings
+ * of all active scopes are kept in one run of arrays, and every binding
+ * remembers the binding of the same name it shadows. The innermost binding of
+ * a name is found in an {@code int[]} indexed by the name instead of a map, and
+ * values are kept in a {@code long[]}, so declaring and resolving a variable
+ * neither boxes nor hashes.</p>
+ */
+final class LongScopes {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    private int[] names = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int[] shadowed = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private int[] scopeStarts = new int[INITIAL_CAPACITY];
+    private int depth = 0;
+
+    //Index of the innermost binding of every name, or NONE
+    private int[] innermost;
+
+    /**
+     * @param names the number of names in the string pool
+     */
+    LongScopes(int names) {
+        innermost = new int[Math.max(names, 1)];
+        Arrays.fill(innermost, NONE);
+    }
+
+    void enterScope() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = size;
+    }
+
+    /**
+     * Exits the current scope, dropping its bindings and restoring the ones they shadowed.
+     *
+     * @throws IllegalStateException if no scope is active
+     */
+    void exitScope() {
+        if (depth == 0) throw new IllegalStateException("No active scope to exit.");
+        int start = scopeStarts[--depth];
+        for (int i = size - 1; i >= start; i--) {
+            innermost[names[i]] = shadowed[i];
+        }
+        size = start;
+    }
+
+    /**
+     * Declares a name in the current scope, overwriting any existing declaration
+     * in that scope.
+     *
+     * @throws IllegalStateException if no scope is active
+     */
+    void declare(int name, long value) {
+        if (depth == 0) throw new IllegalStateException("No active scope to declare variable in.");
+        if (name >= innermost.length) {
+            int length = innermost.length;
+            innermost = Arrays.copyOf(innermost, Math.max(name + 1, length * 2));
+            Arrays.fill(innermost, length, innermost.length, NONE);
+        }
+        int index = innermost[name];
+        if (index != NONE && index >= scopeStarts[depth - 1]) {
+            values[index] = value;
+            return;
+        }
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            shadowed = Arrays.copyOf(shadowed, capacity);
+        }
+        names[size] = name;
+        values[size] = value;
+        shadowed[size] = index;
+        innermost[name] = size++;
+    }
+
+    /**
+     * Resolves a name to the value of its innermost binding.
+     *
+     * @param undeclared the value to return if the name is not declared
+     */
+    long resolve(int name, long undeclared) {
+        int index = name < innermost.length ? innermost[name] : NONE;
+        return index == NONE ? undeclared : values[index];
+    }
+}
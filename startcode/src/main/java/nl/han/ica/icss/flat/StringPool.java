@@ -0,0 +1,47 @@
+package nl.han.ica.icss.flat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The names, selectors and colors of one or more {@link FlatAST}s, each stored
+ * once and referred to by index.
+ *
+ * <p>A pool only grows, so indices stay valid and ASTs derived from one another,
+ * such as a stylesheet and its evaluated form, can share a pool. It is not
+ * thread-safe while strings are added.</p>
+ */
+public final class StringPool {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private String[] strings = new String[16];
+    private int size = 0;
+
+    /**
+     * Returns the index of the string, adding it if it is not in the pool yet.
+     */
+    public int intern(String string) {
+        Integer index = indices.get(string);
+        if (index != null) {
+            return index;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        strings[size] = string;
+        indices.put(string, size);
+        return size++;
+    }
+
+    public String get(int index) {
+        return strings[index];
+    }
+
+    /**
+     * Number of strings in the pool.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -11,22 +11,81 @@ import nl.han.ica.icss.ast.selectors.IdSelector;
 import nl.han.ica.icss.ast.selectors.TagSelector;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class Generator {
 
     private static final String IDENT = "  ";
 
+    /**
+     * Number of characters collected before they are handed to the output.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
     public String generate(AST ast) {
         StringBuilder css = new StringBuilder();
-        generateStyleSheet(ast.root.getChildren(), css);
-        return css.toString().trim();
+        try {
+            generate(ast, css);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringBuilder does not throw
+        }
+        return css.toString();
+    }
+
+    /**
+     * Generates CSS rule by rule into the given output.
+     *
+     * <p>Rules are collected in a buffer of bounded size that is handed to the
+     * output whenever it fills up, so the CSS is never held in memory as a whole.
+     * The output is identical to {@link #generate(AST)}.</p>
+     *
+     * @param ast the evaluated AST
+     * @param out the output to append the CSS to
+     * @throws IOException if appending to the output fails
+     */
+    public void generate(AST ast, Appendable out) throws IOException {
+        StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+        generateStyleSheet(ast.root.body, buffer, out);
+        out.append(buffer);
     }
 
-    private void generateStyleSheet(List<ASTNode> body, StringBuilder css) {
+    /**
+     * Generates CSS rule by rule and writes it to the channel as UTF-8.
+     *
+     * <p>Characters are encoded straight into a fixed-size byte buffer, so the
+     * output never exists as a single string or byte array.</p>
+     *
+     * @param ast     the evaluated AST
+     * @param channel the channel to write the encoded CSS to; it is not closed
+     * @throws IOException if writing to the channel fails
+     */
+    public void generate(AST ast, WritableByteChannel channel) throws IOException {
+        Utf8ChannelAppender out = new Utf8ChannelAppender(channel);
+        generate(ast, out);
+        out.finish();
+    }
+
+    private void generateStyleSheet(List<ASTNode> body, StringBuilder buffer, Appendable out) throws IOException {
+        boolean first = true;
         for (ASTNode child : body) {
             if (child instanceof StyleRule) {
-                generateStyleRule((StyleRule) child, css);
+                if (!first) {
+                    buffer.append("\n");
+                }
+                first = false;
+                generateStyleRule((StyleRule) child, buffer);
+                if (buffer.length() >= BUFFER_SIZE) {
+                    out.append(buffer);
+                    buffer.setLength(0);
+                }
             }
         }
     }
@@ -38,11 +97,27 @@ public class Generator {
                 css.append(IDENT).append(declarationToString(decl)).append("\n");
             }
         }
-        css.append("}\n");
+        css.append("}");
     }
 
     private String selectorToString(@NotNull List<Selector> selectors) {
-        Selector selector = selectors.getFirst();
+        if (selectors.size() == 1) {
+            return selectorToString(selectors.getFirst());
+        }
+        StringBuilder css = new StringBuilder();
+        for (Selector selector : selectors) {
+            if (!css.isEmpty()) {
+                css.append(", ");
+            }
+            css.append(selectorToString(selector));
+        }
+        return css.toString();
+    }
+
+    /**
+     * Returns the CSS of a single selector, as it appears in the output.
+     */
+    public String selectorToString(Selector selector) {
         return switch (selector) {
             case TagSelector tag -> tag.tag;
             case IdSelector id -> "#" + id.id;
@@ -51,7 +126,10 @@ public class Generator {
         };
     }
 
-    private String declarationToString(Declaration decl) {
+    /**
+     * Returns the CSS of an evaluated declaration, as it appears in the output.
+     */
+    public String declarationToString(Declaration decl) {
         return decl.property.name + ": " + literalToString(decl.expression) + ";";
     }
 
@@ -65,5 +143,67 @@ public class Generator {
         });
     }
 
-}
+    /**
+     * Encodes appended characters as UTF-8 into a fixed-size buffer that is
+     * written to a channel whenever it fills up.
+     */
+    private static final class Utf8ChannelAppender implements Appendable {
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private Utf8ChannelAppender(WritableByteChannel channel) {
+            this.channel = channel;
+        }
 
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            encode(CharBuffer.wrap(csq), false);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            encode(CharBuffer.wrap(csq, start, end), false);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            encode(CharBuffer.wrap(new char[]{c}), false);
+            return this;
+        }
+
+        /**
+         * Completes the encoding and writes everything still buffered.
+         */
+        private void finish() throws IOException {
+            encode(CharBuffer.allocate(0), true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+
+        private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    return;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -3,7 +3,6 @@ package nl.han.ica.icss.gui;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
 import javafx.scene.control.TreeCell;
-import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import javafx.scene.layout.BorderPane;
 import nl.han.ica.icss.ast.AST;
@@ -44,20 +43,26 @@ public class ASTPane extends BorderPane {
         setPrefWidth(400);
 	}
     /**
-     * Updates the panes based on the current content of the AST
+     * Updates the panes based on the current content of the AST.
+     * Only the root is expanded; other nodes get their tree items when they
+     * are expanded. When the pane already shows an AST, the existing items are
+     * patched instead of rebuilt, so expanded nodes and the scroll position are
+     * kept between the stages of the pipeline.
      * @param ast
      */
     public void update(AST ast) {
-        content.setRoot(astNodeToTreeItem(ast.root));
-    }
-    private TreeItem<ASTNode> astNodeToTreeItem(ASTNode astNode) {
-
-        TreeItem<ASTNode> tvNode = new TreeItem<ASTNode>(astNode);
-        tvNode.setExpanded(true);
-
-        for(ASTNode child : astNode.getChildren()) {
-            tvNode.getChildren().add(astNodeToTreeItem(child));
+        if (ast.root == null) {
+            content.setRoot(null);
+            return;
+        }
+        if (content.getRoot() instanceof ASTTreeItem root && root.getValue().getClass() == ast.root.getClass()) {
+            root.update(ast.root);
+            //Nodes may have been changed in place, e.g. errors set by the checker
+            content.refresh();
+        } else {
+            ASTTreeItem root = new ASTTreeItem(ast.root);
+            root.setExpanded(true);
+            content.setRoot(root);
         }
-        return tvNode;
     }
 }
@@ -0,0 +1,90 @@
+package nl.han.ica.icss.gui;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+import nl.han.ica.icss.ast.ASTNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tree item for an AST node that creates the items of its children the
+ * first time they are asked for, which the tree view does when the item is
+ * expanded. Collapsed subtrees therefore cost one item, however large they are.
+ */
+class ASTTreeItem extends TreeItem<ASTNode> {
+
+    private boolean loaded = false;
+
+    ASTTreeItem(ASTNode node) {
+        super(node);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return getValue().childCount() == 0;
+    }
+
+    @Override
+    public ObservableList<TreeItem<ASTNode>> getChildren() {
+        if (!loaded) {
+            loaded = true;
+            super.getChildren().setAll(itemsFor(getValue(), 0, getValue().childCount()));
+        }
+        return super.getChildren();
+    }
+
+    /**
+     * Shows the given node in this item, reusing the items of its children
+     * where possible so they keep their expansion state.
+     *
+     * <p>Children that have not been loaded yet are simply loaded from the new
+     * node later. Otherwise the old items and the new children are matched by
+     * node class from the front and from the back; matched items are updated
+     * recursively, and only the unmatched run in between is replaced by fresh
+     * items. The stages of the pipeline insert, remove or replace a few
+     * children at a time, so this keeps nearly all items.</p>
+     */
+    void update(ASTNode node) {
+        setValue(node);
+        if (!loaded) {
+            return;
+        }
+        ObservableList<TreeItem<ASTNode>> items = super.getChildren();
+        int oldSize = items.size();
+        int newSize = node.childCount();
+
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && sameKind(items.get(prefix), node.childAt(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && sameKind(items.get(oldSize - 1 - suffix), node.childAt(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        for (int i = 0; i < prefix; i++) {
+            ((ASTTreeItem) items.get(i)).update(node.childAt(i));
+        }
+        for (int i = 1; i <= suffix; i++) {
+            ((ASTTreeItem) items.get(oldSize - i)).update(node.childAt(newSize - i));
+        }
+        if (prefix + suffix < oldSize || prefix + suffix < newSize) {
+            items.remove(prefix, oldSize - suffix);
+            items.addAll(prefix, itemsFor(node, prefix, newSize - suffix));
+        }
+    }
+
+    private static boolean sameKind(TreeItem<ASTNode> item, ASTNode node) {
+        return item.getValue().getClass() == node.getClass();
+    }
+
+    private static List<TreeItem<ASTNode>> itemsFor(ASTNode parent, int from, int to) {
+        List<TreeItem<ASTNode>> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            items.add(new ASTTreeItem(parent.childAt(i)));
+        }
+        return items;
+    }
+}
@@ -13,6 +13,6 @@ public class FeedbackPane extends TextArea {
 		this.setText("");
 	}
 	public void addLine(String line) {
-		this.setText( this.getText() + "\n" + line);
+		this.appendText("\n" + line);
 	}
 }
@@ -2,8 +2,10 @@ package nl.han.ica.icss.gui;
 
 import com.google.common.io.Resources;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -13,6 +15,8 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import nl.han.ica.icss.CompilationResult;
 import nl.han.ica.icss.Pipeline;
 
 import java.io.File;
@@ -21,6 +25,9 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 //We use this google library, because it makes life so much easier when
 //reading the examples icss files as packaged resource
@@ -31,6 +38,8 @@ public class MainGui extends Application {
     private final static String title = "ICSS Tool September 2020, version 1";
     //Example files (for menu)
     private final static List<String> examples = Arrays.asList("level0.icss","level1.icss","level2.icss","level3.icss");
+    //Quiet time after the last keystroke before the live preview compiles
+    private final static Duration previewDelay = Duration.millis(300);
 
     //UI Components
     private InputPane inputPane;
@@ -43,15 +52,27 @@ public class MainGui extends Application {
     private Button checkButton;
     private Button transformButton;
     private Button generateButton;
+    private CheckBox livePreview;
+    private ProgressBar progressBar;
 
     //Model
     private Pipeline pipeline;
 
+    //Stages of the pipeline run here, one at a time, so the window stays responsive
+    private final ExecutorService stageWorker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().daemon().name("icss-pipeline").factory());
+    //Every preview compiles on a pipeline of its own, so a new one need not wait for a stale one
+    private final ExecutorService previewWorker = Executors.newVirtualThreadPerTaskExecutor();
+    private Task<?> stageTask;
+    private Task<CompilationResult> previewTask;
+    private PauseTransition previewTimer;
+
 
     @Override
     public void start(Stage stage) {
         //Setup pipeline
         pipeline = new Pipeline();
+        pipeline.setNonDestructiveTransform(true);
 
         //Setup UI
         stage.setTitle(title);
@@ -95,6 +116,32 @@ public class MainGui extends Application {
             }
         });
 
+        //Live preview: compile whenever typing pauses
+        livePreview = new CheckBox("Live preview");
+        livePreview.setPadding(new Insets(0, 0, 0, 10));
+        previewTimer = new PauseTransition(previewDelay);
+        previewTimer.setOnFinished(e -> preview());
+        livePreview.selectedProperty().addListener((observable, wasSelected, selected) -> {
+            if (selected) {
+                preview();
+            } else {
+                previewTimer.stop();
+                cancel(previewTask);
+            }
+        });
+
+        //Edits make running stages stale
+        inputPane.textProperty().addListener((observable, oldText, newText) -> {
+            cancel(stageTask);
+            if (livePreview.isSelected()) {
+                previewTimer.playFromStart();
+            }
+        });
+
+        progressBar = new ProgressBar();
+        progressBar.setVisible(false);
+        progressBar.setPadding(new Insets(0, 0, 0, 10));
+
         //Create menus
         MenuBar menuBar = new MenuBar();
 
@@ -167,7 +214,8 @@ public class MainGui extends Application {
         //Toolbar
         HBox toolbar = new HBox();
         toolbar.setPadding(new Insets(5, 5, 5, 5));
-        toolbar.getChildren().addAll(new Label("Pipeline: "), parseButton, checkButton, transformButton, generateButton);
+        toolbar.getChildren().addAll(new Label("Pipeline: "), parseButton, checkButton, transformButton, generateButton,
+                livePreview, progressBar);
         updateToolbar();
 
         BorderPane bottom = new BorderPane();
@@ -186,60 +234,200 @@ public class MainGui extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        stageWorker.shutdownNow();
+        previewWorker.shutdownNow();
+    }
+
     private void clear() {
         feedbackPane.clear();
-        pipeline.clearErrors();
     }
 
     private void parse() {
-        clear();
-        feedbackPane.addLine("Parsing...");
-        pipeline.parseString(inputPane.getText());
-        for(String e : pipeline.getErrors()) {
-            feedbackPane.addLine(e);
-        }
-        if (pipeline.isParsed()) {
-            feedbackPane.addLine("Parsing succeeded");
-        }
-        astPane.update(pipeline.getAST());
-        updateToolbar();
+        String input = inputPane.getText();
+        runStage("Parsing...", () -> {
+            pipeline.clearErrors();
+            pipeline.parseString(input);
+        }, () -> {
+            for(String e : pipeline.getErrors()) {
+                feedbackPane.addLine(e);
+            }
+            if (pipeline.isParsed()) {
+                feedbackPane.addLine("Parsing succeeded");
+            }
+            astPane.update(pipeline.getAST());
+        });
     }
 
     private void check() {
-        clear();
-        feedbackPane.addLine("Checking...");
-        if (pipeline.check()) {
-            feedbackPane.addLine("AST is ok!");
-        } else {
-            for (String e : pipeline.getErrors()) {
-                feedbackPane.addLine(e);
+        boolean[] ok = new boolean[1];
+        runStage("Checking...", () -> {
+            pipeline.clearErrors();
+            ok[0] = pipeline.check();
+        }, () -> {
+            if (ok[0]) {
+                feedbackPane.addLine("AST is ok!");
+            } else {
+                for (String e : pipeline.getErrors()) {
+                    feedbackPane.addLine(e);
+                }
             }
-        }
-        astPane.update(pipeline.getAST());
-        updateToolbar();
+            astPane.update(pipeline.getAST());
+        });
     }
 
     private void transform() {
-       clear();
-       feedbackPane.addLine("Applying transformations...");
-       pipeline.transform();
-       if (pipeline.isTransformed()) {
-           feedbackPane.addLine("Transformation succeeded");
-       }
-       astPane.update(pipeline.getAST());
-       updateToolbar();
+        runStage("Applying transformations...", () -> {
+            pipeline.clearErrors();
+            pipeline.transform();
+        }, () -> {
+            if (pipeline.isTransformed()) {
+                feedbackPane.addLine("Transformation succeeded");
+            }
+            astPane.update(pipeline.getAST());
+        });
     }
 
     private void generate() {
+        String[] css = new String[1];
+        runStage("Generating output...", () -> css[0] = pipeline.generate(), () -> {
+            outputPane.setText(css[0]);
+            feedbackPane.addLine("Generating succeeded");
+        });
+    }
+
+    /**
+     * Runs a stage of the pipeline on the stage worker. The toolbar is disabled
+     * while it runs; afterwards {@code done} updates the panes on the
+     * application thread. Editing the input cancels the stage: it still runs to
+     * completion, as the stages cannot be interrupted, but its outcome is not
+     * shown. Either way the toolbar stays disabled until the worker has
+     * returned, as the stage changes the pipeline until then. A stage is a
+     * single step, so the progress bar only shows whether it has finished.
+     */
+    private void runStage(String description, Runnable stage, Runnable done) {
         clear();
-        feedbackPane.addLine("Generating output...");
-        outputPane.setText(pipeline.generate());
-        feedbackPane.addLine("Generating succeeded");
+        feedbackPane.addLine(description);
+        setToolbarDisabled(true);
+
+        AtomicBoolean started = new AtomicBoolean();
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() {
+                if (!started.compareAndSet(false, true)) {
+                    return null; // cancelled before it started
+                }
+                Runnable outcome = done;
+                try {
+                    updateProgress(0, 1);
+                    stage.run();
+                    updateProgress(1, 1);
+                } catch (Throwable e) {
+                    outcome = () -> feedbackPane.addLine("Internal error: " + e);
+                    throw e;
+                } finally {
+                    Runnable shown = outcome;
+                    Platform.runLater(() -> stageReturned(this, shown));
+                }
+                return null;
+            }
+        };
+        task.setOnCancelled(e -> {
+            feedbackPane.addLine("Cancelled, the input was edited");
+            if (started.compareAndSet(false, true)) {
+                updateToolbar(); // the stage never ran, so nothing else will
+            }
+        });
+        stageTask = task;
+        showProgress(task);
+        stageWorker.execute(task);
+    }
+
+    /**
+     * Shows the outcome of a stage, unless it was cancelled, and enables the
+     * toolbar again. Runs on the application thread once the stage worker has
+     * returned from the stage, so the pipeline is no longer being changed.
+     */
+    private void stageReturned(Task<?> task, Runnable outcome) {
+        if (!task.isCancelled()) {
+            outcome.run();
+        }
         updateToolbar();
     }
 
+    /**
+     * Compiles the input on a fresh pipeline in the background and shows the
+     * CSS, or the errors, when done. A preview still running is cancelled.
+     * Progress is reported per stage.
+     */
+    private void preview() {
+        cancel(previewTask);
+        String input = inputPane.getText();
+
+        Task<CompilationResult> task = new Task<>() {
+            @Override
+            protected CompilationResult call() {
+                Pipeline preview = new Pipeline();
+                updateProgress(0, 4);
+                preview.parseString(input);
+                updateProgress(1, 4);
+                if (!preview.isParsed() || !preview.check()) {
+                    return CompilationResult.failed(preview.getErrors());
+                }
+                updateProgress(2, 4);
+                if (isCancelled()) {
+                    return null;
+                }
+                preview.transform();
+                updateProgress(3, 4);
+                if (isCancelled()) {
+                    return null;
+                }
+                String css = preview.generate();
+                updateProgress(4, 4);
+                return CompilationResult.succeeded(css);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            CompilationResult result = task.getValue();
+            clear();
+            if (result.isSuccessful()) {
+                outputPane.setText(result.css());
+                feedbackPane.addLine("Preview up to date");
+            } else {
+                for (String error : result.errors()) {
+                    feedbackPane.addLine(error);
+                }
+            }
+        });
+        task.setOnFailed(e -> feedbackPane.addLine("Internal error: " + task.getException()));
+        previewTask = task;
+        showProgress(task);
+        previewWorker.execute(task);
+    }
+
+    private void showProgress(Task<?> task) {
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.visibleProperty().bind(task.runningProperty());
+    }
+
+    private static void cancel(Task<?> task) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private void setToolbarDisabled(boolean disabled) {
+        parseButton.setDisable(disabled);
+        checkButton.setDisable(disabled);
+        transformButton.setDisable(disabled);
+        generateButton.setDisable(disabled);
+    }
+
     private void updateToolbar() {
         //Quick and ugly way...
+        parseButton.setDisable(false);
         checkButton.setDisable(true);
         transformButton.setDisable(true);
         generateButton.setDisable(true);
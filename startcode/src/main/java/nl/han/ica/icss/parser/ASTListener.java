@@ -9,15 +9,28 @@ import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.selectors.ClassSelector;
 import nl.han.ica.icss.ast.selectors.IdSelector;
 import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 public class ASTListener extends ICSSBaseListener {
 
     private AST ast;
     private HANStack<ASTNode> nodeStack;
+    private final SymbolTable symbols;
 
     public ASTListener() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates a listener that interns identifiers into the given table, so
+     * several parses can share their symbols.
+     */
+    public ASTListener(SymbolTable symbols) {
         ast = new AST();
         nodeStack = new HANStack<>();
+        this.symbols = symbols;
     }
 
     public AST getAST() {
@@ -27,7 +40,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
         StyleSheet sheet = new StyleSheet();
-        nodeStack.push(sheet);
+        nodeStack.push(at(ctx, sheet));
     }
 
     @Override
@@ -39,16 +52,17 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterStyleRule(ICSSParser.StyleRuleContext ctx) {
         StyleRule rule = new StyleRule();
-        if (ctx.getChild(0).getText().startsWith(".")) {
-            rule.addChild(new ClassSelector(ctx.getChild(0).getText()));
+        String selector = symbolAt(ctx);
+        if (selector.startsWith(".")) {
+            rule.addChild(at(ctx, new ClassSelector(selector)));
         }
-        else if (ctx.getChild(0).getText().startsWith("#")) {
-            rule.addChild(new IdSelector(ctx.getChild(0).getText()));
+        else if (selector.startsWith("#")) {
+            rule.addChild(at(ctx, new IdSelector(selector)));
         }
         else {
-            rule.addChild(new TagSelector(ctx.getChild(0).getText()));
+            rule.addChild(at(ctx, new TagSelector(selector)));
         }
-        nodeStack.push(rule);
+        nodeStack.push(at(ctx, rule));
     }
 
     @Override
@@ -61,7 +75,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
         VariableAssignment varAss = new VariableAssignment();
-        nodeStack.push(varAss);
+        nodeStack.push(at(ctx, varAss));
     }
 
     @Override
@@ -72,8 +86,8 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterVariableReference(ICSSParser.VariableReferenceContext ctx) {
-        VariableReference varRef = new VariableReference(ctx.getText());
-        nodeStack.push(varRef);
+        VariableReference varRef = new VariableReference(symbolAt(ctx));
+        nodeStack.push(at(ctx, varRef));
     }
 
     @Override
@@ -85,7 +99,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
         Declaration decl = new Declaration();
-        nodeStack.push(decl);
+        nodeStack.push(at(ctx, decl));
     }
 
     @Override
@@ -96,8 +110,8 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterProperty(ICSSParser.PropertyContext ctx) {
-        PropertyName property = new PropertyName(ctx.getText());
-        nodeStack.push(property);
+        PropertyName property = new PropertyName(symbolAt(ctx));
+        nodeStack.push(at(ctx, property));
     }
 
     @Override
@@ -109,18 +123,18 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterMultiplyOperation(ICSSParser.MultiplyOperationContext ctx) {
         MultiplyOperation multiplyOp = new MultiplyOperation();
-        nodeStack.push(multiplyOp);
+        nodeStack.push(at(ctx.STAR(), multiplyOp));
     }
 
     @Override
     public void enterAdditiveOperation(ICSSParser.AdditiveOperationContext ctx) {
         if(ctx.PLUS() != null) {
             Operation addOperation = new AddOperation();
-            nodeStack.push(addOperation);
+            nodeStack.push(at(ctx.PLUS(), addOperation));
         }
         else {
             Operation subtractOperation = new SubtractOperation();
-            nodeStack.push(subtractOperation);
+            nodeStack.push(at(ctx.MINUS(), subtractOperation));
         }
     }
 
@@ -145,7 +159,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterBoolLiteral(ICSSParser.BoolLiteralContext ctx) {
         BoolLiteral boolLit = new BoolLiteral(ctx.getText());
-        nodeStack.push(boolLit);
+        nodeStack.push(at(ctx, boolLit));
     }
 
     @Override
@@ -156,8 +170,8 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterColorLiteral(ICSSParser.ColorLiteralContext ctx) {
-        ColorLiteral colorLit = new ColorLiteral(ctx.getText());
-        nodeStack.push(colorLit);
+        ColorLiteral colorLit = new ColorLiteral(symbolAt(ctx));
+        nodeStack.push(at(ctx, colorLit));
     }
 
     @Override
@@ -169,7 +183,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterPercentageLiteral(ICSSParser.PercentageLiteralContext ctx) {
         PercentageLiteral percentageLit = new PercentageLiteral(ctx.getText());
-        nodeStack.push(percentageLit);
+        nodeStack.push(at(ctx, percentageLit));
     }
 
     @Override
@@ -181,7 +195,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterPixelLiteral(ICSSParser.PixelLiteralContext ctx) {
         PixelLiteral pixelLit = new PixelLiteral(ctx.getText());
-        nodeStack.push(pixelLit);
+        nodeStack.push(at(ctx, pixelLit));
     }
 
     @Override
@@ -193,7 +207,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterScalarLiteral(ICSSParser.ScalarLiteralContext ctx) {
         ScalarLiteral scalarLit = new ScalarLiteral(ctx.getText());
-        nodeStack.push(scalarLit);
+        nodeStack.push(at(ctx, scalarLit));
     }
 
     @Override
@@ -205,7 +219,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterIfClause(ICSSParser.IfClauseContext ctx) {
         IfClause ifClause = new IfClause();
-        nodeStack.push(ifClause);
+        nodeStack.push(at(ctx, ifClause));
     }
 
     @Override
@@ -217,7 +231,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterElseClause(ICSSParser.ElseClauseContext ctx) {
         ElseClause elseClause = new ElseClause();
-        nodeStack.push(elseClause);
+        nodeStack.push(at(ctx, elseClause));
     }
 
     @Override
@@ -225,4 +239,36 @@ public class ASTListener extends ICSSBaseListener {
         ElseClause elseClause = (ElseClause) nodeStack.pop();
         nodeStack.peek().addChild(elseClause);
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the position of a node to the start of the rule it was built from.
+     */
+    private static <T extends ASTNode> T at(ParserRuleContext ctx, T node) {
+        node.setPosition(positionOf(ctx.getStart()));
+        return node;
+    }
+
+    /**
+     * Sets the position of an operation to its operator, which may be missing
+     * after a syntax error.
+     */
+    private static <T extends ASTNode> T at(TerminalNode operator, T node) {
+        if (operator != null) {
+            node.setPosition(positionOf(operator.getSymbol()));
+        }
+        return node;
+    }
+
+    private static int positionOf(Token token) {
+        return SourcePosition.of(token.getLine(), token.getCharPositionInLine());
+    }
+
+    /**
+     * Returns the interned text of the first token of a rule. Variable references,
+     * properties, colors and the selector of a style rule all start with the one
+     * token that names them.
+     */
+    private String symbolAt(ParserRuleContext ctx) {
+        return symbols.intern(ctx.getStart().getText());
+    }
+}
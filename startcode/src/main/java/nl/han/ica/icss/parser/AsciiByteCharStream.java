@@ -0,0 +1,128 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link CharStream} that reads one character per byte straight from a
+ * {@link ByteBuffer}, typically a memory-mapped file.
+ *
+ * <p>The ICSS grammar only consists of ASCII characters, so the source does not
+ * have to be decoded into a {@code String} and then copied into a code point
+ * array as {@link org.antlr.v4.runtime.CharStreams} does. Only token texts are
+ * copied out of the buffer, when they are asked for. Bytes above {@code 0x7F}
+ * are read as Latin-1 characters; the grammar rejects them like any other
+ * unexpected character.</p>
+ */
+public final class AsciiByteCharStream implements CharStream {
+
+    private final ByteBuffer bytes;
+    private final int size;
+    private final String sourceName;
+    private int position = 0;
+
+    /**
+     * Creates a stream over the remaining bytes of the buffer. The buffer must
+     * not be modified while the stream or its tokens are in use.
+     */
+    public AsciiByteCharStream(ByteBuffer bytes, String sourceName) {
+        this.bytes = bytes.slice();
+        this.size = this.bytes.remaining();
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Memory-maps a file read-only and returns a stream over its contents. The
+     * mapping stays valid after the file channel is closed, until the stream
+     * and all tokens read from it are garbage.
+     *
+     * @throws IOException if the file cannot be read, or is 2GB or larger
+     */
+    public static AsciiByteCharStream map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File too large to parse: " + file);
+            }
+            return new AsciiByteCharStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), file.toString());
+        }
+    }
+
+    @Override
+    public int LA(int i) {
+        int offset;
+        if (i > 0) {
+            offset = position + i - 1;
+        } else if (i < 0) {
+            offset = position + i;
+        } else {
+            return 0; // undefined
+        }
+        if (offset < 0 || offset >= size) {
+            return IntStream.EOF;
+        }
+        return bytes.get(offset) & 0xFF;
+    }
+
+    @Override
+    public void consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int mark() {
+        return -1; // the whole input is always available
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return position;
+    }
+
+    @Override
+    public void seek(int index) {
+        position = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName == null || sourceName.isEmpty() ? UNKNOWN_SOURCE_NAME : sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.min(interval.a, size);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+        byte[] text = new byte[stop - start + 1];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
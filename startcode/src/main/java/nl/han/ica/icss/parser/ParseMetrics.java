@@ -0,0 +1,73 @@
+package nl.han.ica.icss.parser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts parses and the time spent in each stage of two-stage parsing.
+ *
+ * <p>The first stage parses with SLL prediction and bails out at the first
+ * syntax error; the second stage parses again with full LL prediction and
+ * normal error recovery. Valid input that SLL parses correctly never reaches
+ * the second stage, so {@link #getFallbacks()} should stay close to the number
+ * of invalid inputs. Lexing happens on demand while parsing and is included
+ * in the time of the first stage.</p>
+ *
+ * <p>The counters can be updated from several threads at once.</p>
+ */
+public final class ParseMetrics {
+
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong sllNanos = new AtomicLong();
+    private final AtomicLong llNanos = new AtomicLong();
+
+    /**
+     * Records a first-stage parse, whether or not it succeeded.
+     */
+    public void recordSll(long nanos) {
+        parses.incrementAndGet();
+        sllNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records a second-stage parse after the first stage bailed out.
+     */
+    public void recordLlFallback(long nanos) {
+        fallbacks.incrementAndGet();
+        llNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Number of inputs parsed.
+     */
+    public long getParses() {
+        return parses.get();
+    }
+
+    /**
+     * Number of inputs that had to be parsed again with full LL prediction.
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * Total time spent in the SLL stage, including attempts that bailed out.
+     */
+    public long getSllNanos() {
+        return sllNanos.get();
+    }
+
+    /**
+     * Total time spent in the LL stage.
+     */
+    public long getLlNanos() {
+        return llNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return getParses() + " parse(s), " + getFallbacks() + " LL fallback(s), "
+                + getSllNanos() / 1_000_000 + " ms SLL, " + getLlNanos() / 1_000_000 + " ms LL";
+    }
+}
@@ -0,0 +1,208 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.ICSSParser.*;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the AST while the parser runs, instead of walking a parse tree afterwards.
+ *
+ * <p>The builder is registered as a parse listener on a parser that does not build
+ * a parse tree, so every rule context can be dropped as soon as its node exists.
+ * It produces the same AST as {@link ASTListener}.</p>
+ *
+ * <p>A parse listener sees rules in a different order than a tree walker: for
+ * left-recursive expressions the operation is entered after its left operand has
+ * been parsed, and labeled alternatives are only reported on exit. The builder
+ * therefore works from exit events, which arrive in postfix order:</p>
+ * <ul>
+ *   <li>leaves (selectors, properties, variable references, literals) are pushed
+ *   onto a stack of finished nodes when their rule exits;</li>
+ *   <li>operations pop their two operands when they exit; the operator is taken
+ *   from the operator token, which is consumed before the right operand;</li>
+ *   <li>rules with a variable number of children mark the stack on entry and
+ *   collect everything pushed above that mark on exit.</li>
+ * </ul>
+ */
+public class ParseTimeASTBuilder implements ParseTreeListener {
+
+    private final SymbolTable symbols;
+    private AST ast = new AST();
+
+    //Finished nodes not yet added to their parent
+    private final List<ASTNode> nodes = new ArrayList<>();
+    //Size of nodes when each open composite rule was entered
+    private int[] marks = new int[16];
+    private int depth = 0;
+    //Operations whose operator has been read, but whose rule has not exited yet
+    private final List<Operation> operations = new ArrayList<>();
+
+    public ParseTimeASTBuilder() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates a builder that interns identifiers into the given table, so
+     * several parses can share their symbols.
+     */
+    public ParseTimeASTBuilder(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Parses a stylesheet with the given parser without building a parse tree.
+     *
+     * @param parser a parser positioned at the start of a stylesheet
+     * @return the AST of the stylesheet
+     */
+    public AST build(ICSSParser parser) {
+        parser.setBuildParseTree(false);
+        parser.addParseListener(this);
+        try {
+            parser.stylesheet();
+        } finally {
+            parser.removeParseListener(this);
+        }
+        return getAST();
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        switch (ctx) {
+            case StylesheetContext _, StyleRuleContext _, VariableAssignmentContext _, DeclarationContext _,
+                 IfClauseContext _, ElseClauseContext _ -> mark();
+            default -> {} // children are handled on exit
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        switch (ctx) {
+            case StylesheetContext _ -> ast.setRoot((StyleSheet) collect(ctx, new StyleSheet()));
+            case StyleRuleContext _ -> nodes.add(collect(ctx, new StyleRule()));
+            case VariableAssignmentContext _ -> nodes.add(collect(ctx, new VariableAssignment()));
+            case DeclarationContext _ -> nodes.add(collect(ctx, new Declaration()));
+            case IfClauseContext _ -> nodes.add(collect(ctx, new IfClause()));
+            case ElseClauseContext _ -> nodes.add(collect(ctx, new ElseClause()));
+
+            case IdSelectorContext _ -> leaf(ctx, new IdSelector(symbolAt(ctx)));
+            case ClassSelectorContext _ -> leaf(ctx, new ClassSelector(symbolAt(ctx)));
+            case TagSelectorContext _ -> leaf(ctx, new TagSelector(symbolAt(ctx)));
+            case PropertyContext _ -> leaf(ctx, new PropertyName(symbolAt(ctx)));
+            case VariableReferenceContext _ -> leaf(ctx, new VariableReference(symbolAt(ctx)));
+
+            case BoolLiteralContext _ -> leaf(ctx, new BoolLiteral(textAt(ctx)));
+            case ColorLiteralContext _ -> leaf(ctx, new ColorLiteral(symbolAt(ctx)));
+            case PercentageLiteralContext _ -> leaf(ctx, new PercentageLiteral(textAt(ctx)));
+            case PixelLiteralContext _ -> leaf(ctx, new PixelLiteral(textAt(ctx)));
+            case ScalarLiteralContext _ -> leaf(ctx, new ScalarLiteral(textAt(ctx)));
+
+            case MultiplyOperationContext _, AdditiveOperationContext _ -> completeOperation();
+            default -> {} // body, selector, expression and literal wrappers add no node of their own
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+        switch (node.getSymbol().getType()) {
+            case ICSSParser.STAR -> operations.add(at(node.getSymbol(), new MultiplyOperation()));
+            case ICSSParser.PLUS -> operations.add(at(node.getSymbol(), new AddOperation()));
+            case ICSSParser.MINUS -> operations.add(at(node.getSymbol(), new SubtractOperation()));
+            default -> {}
+        }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+    }
+
+    private void mark() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+        }
+        marks[depth++] = nodes.size();
+    }
+
+    /**
+     * Pushes a finished leaf, positioned at the start of its rule.
+     */
+    private void leaf(ParserRuleContext ctx, ASTNode node) {
+        nodes.add(at(ctx.getStart(), node));
+    }
+
+    /**
+     * Adds all nodes pushed since the innermost open mark to the given node,
+     * in the order they were parsed, and closes the mark. The node is
+     * positioned at the start of its rule.
+     */
+    private ASTNode collect(ParserRuleContext ctx, ASTNode parent) {
+        at(ctx.getStart(), parent);
+        int start = marks[--depth];
+        List<ASTNode> children = nodes.subList(start, nodes.size());
+        for (ASTNode child : children) {
+            parent.addChild(child);
+        }
+        children.clear();
+        return parent;
+    }
+
+    /**
+     * Pops the operands of the innermost open operation and pushes the operation.
+     * After a syntax error an operand or the operator may be missing; the
+     * operation is then built from what is there, as the AST is discarded anyway.
+     */
+    private void completeOperation() {
+        if (operations.isEmpty()) {
+            return;
+        }
+        Operation op = operations.removeLast();
+        op.rhs = popExpression();
+        op.lhs = popExpression();
+        nodes.add(op);
+    }
+
+    private Expression popExpression() {
+        int floor = depth == 0 ? 0 : marks[depth - 1];
+        if (nodes.size() > floor && nodes.getLast() instanceof Expression expr) {
+            nodes.removeLast();
+            return expr;
+        }
+        return null;
+    }
+
+    private static <T extends ASTNode> T at(Token token, T node) {
+        node.setPosition(SourcePosition.of(token.getLine(), token.getCharPositionInLine()));
+        return node;
+    }
+
+    private String symbolAt(ParserRuleContext ctx) {
+        return symbols.intern(textAt(ctx));
+    }
+
+    /**
+     * Returns the text of the first token of a rule; without a parse tree the
+     * context has no children to take its text from.
+     */
+    private static String textAt(ParserRuleContext ctx) {
+        return ctx.getStart().getText();
+    }
+}
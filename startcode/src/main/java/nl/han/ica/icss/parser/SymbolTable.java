@@ -0,0 +1,45 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.checker.PropertyRules;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the identifiers of a stylesheet while its AST is built.
+ *
+ * <p>Every occurrence of the same variable name, property name, selector or
+ * color in the AST refers to one canonical {@code String} instance. Equal
+ * names then compare by identity in {@link String#equals}, their hash code is
+ * computed once and cached in that instance, and only one copy of each name is
+ * kept alive. Property names are seeded with the keys of {@link PropertyRules},
+ * so looking up their rules hits on identity too.</p>
+ *
+ * <p>A table can be shared by several parses, but is not thread-safe.</p>
+ */
+public final class SymbolTable {
+
+    private final Map<String, String> symbols = new HashMap<>();
+
+    public SymbolTable() {
+        for (String property : PropertyRules.supportedProperties()) {
+            symbols.put(property, property);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of the given text, which becomes the
+     * canonical instance itself if the text was not seen before.
+     */
+    public String intern(String text) {
+        String symbol = symbols.putIfAbsent(text, text);
+        return symbol != null ? symbol : text;
+    }
+
+    /**
+     * Number of distinct symbols in the table.
+     */
+    public int size() {
+        return symbols.size();
+    }
+}
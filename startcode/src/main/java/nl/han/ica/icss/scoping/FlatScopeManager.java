@@ -0,0 +1,162 @@
+package nl.han.ica.icss.scoping;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scope manager that keeps all bindings of all active scopes in one flat array.
+ * <p>
+ * Each scope is a contiguous run of bindings; entering a scope only records where
+ * its run starts, so entering and exiting a scope that declares nothing does not
+ * allocate. A single index from each name to its innermost binding makes
+ * resolution one hash lookup, however deeply scopes are nested. Every binding
+ * remembers the binding of the same name it shadows, which is restored when its
+ * scope is exited.
+ * </p>
+ * <p>
+ * Behaves exactly like {@link ScopeManager}, including names declared with a
+ * {@code null} value, which resolve to {@code null} but still shadow outer ones.
+ * </p>
+ * @param <T> the type of values associated with declared names
+ */
+public class FlatScopeManager<T> implements IScopeManager<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int[] shadowed = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private int[] scopeStarts = new int[INITIAL_CAPACITY];
+    private int depth = 0;
+
+    //Index of the innermost binding of every declared name
+    private final Map<String, Integer> innermost = new HashMap<>();
+
+    /**
+     * Enters a new, empty scope.
+     */
+    @Override
+    public void enterScope() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = size;
+    }
+
+    /**
+     * Exits the current scope, dropping its bindings and restoring the ones they shadowed.
+     *
+     * @throws IllegalStateException if no scope is active
+     */
+    @Override
+    public void exitScope() {
+        if (depth == 0) throw new IllegalStateException("No active scope to exit.");
+        int start = scopeStarts[--depth];
+        for (int i = size - 1; i >= start; i--) {
+            if (shadowed[i] == NONE) {
+                innermost.remove(names[i]);
+            } else {
+                innermost.put(names[i], shadowed[i]);
+            }
+            names[i] = null;
+            values[i] = null;
+        }
+        size = start;
+    }
+
+    /**
+     * Declares a name in the current scope, overwriting any existing declaration
+     * in that scope.
+     *
+     * @param name the name to declare
+     * @param type the associated value
+     * @throws IllegalStateException if no scope is active
+     */
+    @Override
+    public void declare(String name, T type) {
+        if (depth == 0) throw new IllegalStateException("No active scope to declare variable in.");
+        int index = indexInCurrentScope(name);
+        if (index != NONE) {
+            values[index] = type;
+        } else {
+            append(name, type);
+        }
+    }
+
+    /**
+     * Declares a name in the current scope only if it is not already present
+     * in that scope. A name declared there with a {@code null} value is
+     * overwritten, as in {@link ScopeManager}.
+     *
+     * @param name the name to declare
+     * @param value the associated value
+     * @return true if the declaration was added, false if it already existed
+     * @throws IllegalStateException if no scope is active
+     */
+    @Override
+    public boolean declareIfAbsent(String name, T value) {
+        if (depth == 0) throw new IllegalStateException("No active scopes.");
+        int index = indexInCurrentScope(name);
+        if (index == NONE) {
+            append(name, value);
+        } else if (values[index] == null) {
+            //Like Map.putIfAbsent, a null value counts as absent
+            values[index] = value;
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Resolves a name to the value of its innermost binding.
+     *
+     * @param name the name to resolve
+     * @return the associated value, or null if the name is not declared
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T resolve(String name) {
+        Integer index = innermost.get(name);
+        return index == null ? null : (T) values[index];
+    }
+
+    /**
+     * Executes the given work within a newly entered scope, which is
+     * automatically exited afterwards.
+     *
+     * @param work the code to execute inside the new scope
+     */
+    @Override
+    public void inNewScope(Runnable work) {
+        enterScope();
+        try {
+            work.run();
+        } finally {
+            exitScope();
+        }
+    }
+
+    private int indexInCurrentScope(String name) {
+        Integer index = innermost.get(name);
+        return index != null && index >= scopeStarts[depth - 1] ? index : NONE;
+    }
+
+    private void append(String name, Object value) {
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            shadowed = Arrays.copyOf(shadowed, capacity);
+        }
+        names[size] = name;
+        values[size] = value;
+        Integer previous = innermost.put(name, size);
+        shadowed[size] = previous == null ? NONE : previous;
+        size++;
+    }
+}
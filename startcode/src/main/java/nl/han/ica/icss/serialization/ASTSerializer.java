@@ -0,0 +1,499 @@
+package nl.han.ica.icss.serialization;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.SymbolTable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of an {@link AST}, so parse and check results can be
+ * stored between runs or sent to another process and read back without parsing.
+ *
+ * <p>The encoding is:</p>
+ * <pre>
+ *   int     magic "ICSA"
+ *   varint  format version
+ *   varint  number of strings, then per string: varint length, UTF-8 bytes
+ *   node    root stylesheet
+ * </pre>
+ * <p>Every node starts with a tag byte for its kind, followed by its packed
+ * {@link SourcePosition} as a varint. The high bit of the tag is set when the
+ * checker attached an error to the node, and the position is then followed by
+ * the string index of the description. Then come the fields of the node: child
+ * nodes in order, a varint count before each list of children, identifiers and
+ * colors as varint indices into the string table, and literal values as
+ * zigzag varints. Absent children, which only occur after syntax errors, are
+ * written as a single {@code NULL} tag. Every identifier is stored once, and
+ * the reader interns the table into a {@link SymbolTable}, so the AST it
+ * returns shares identifiers like a parsed one does.</p>
+ *
+ * <p>Encoded ASTs are only read back by the same {@link #FORMAT_VERSION}; any
+ * other version is rejected, so callers can treat it as a cache miss.</p>
+ */
+public final class ASTSerializer {
+
+    /**
+     * Version of the encoding. Increment it whenever the encoding or the
+     * node classes change.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x49435341; // "ICSA"
+    private static final int MAX_STRING_BYTES = 1 << 24;
+
+    //Node kinds
+    private static final int NULL = 0;
+    private static final int STYLESHEET = 1;
+    private static final int STYLE_RULE = 2;
+    private static final int DECLARATION = 3;
+    private static final int VARIABLE_ASSIGNMENT = 4;
+    private static final int IF_CLAUSE = 5;
+    private static final int ELSE_CLAUSE = 6;
+    private static final int PROPERTY_NAME = 7;
+    private static final int VARIABLE_REFERENCE = 8;
+    private static final int TAG_SELECTOR = 9;
+    private static final int CLASS_SELECTOR = 10;
+    private static final int ID_SELECTOR = 11;
+    private static final int TRUE_LITERAL = 12;
+    private static final int FALSE_LITERAL = 13;
+    private static final int COLOR_LITERAL = 14;
+    private static final int PERCENTAGE_LITERAL = 15;
+    private static final int PIXEL_LITERAL = 16;
+    private static final int SCALAR_LITERAL = 17;
+    private static final int ADD_OPERATION = 18;
+    private static final int SUBTRACT_OPERATION = 19;
+    private static final int MULTIPLY_OPERATION = 20;
+    private static final int HAS_ERROR = 0x80;
+
+    private ASTSerializer() {
+    }
+
+    /**
+     * Writes an AST, including the errors attached to its nodes.
+     *
+     * @throws IllegalArgumentException if the AST contains a node kind the
+     *                                  encoding does not know
+     */
+    public static void write(AST ast, DataOutput out) throws IOException {
+        new Writer(ast, out).write();
+    }
+
+    /**
+     * Encodes an AST into a byte array.
+     */
+    public static byte[] toBytes(AST ast) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(ast, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a byte array stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads an AST written by {@link #write}.
+     *
+     * @throws IOException if the input ends early, was written by another
+     *                     version, or is corrupt
+     */
+    public static AST read(DataInput in) throws IOException {
+        return new Reader(new Reader.Input() {
+            @Override
+            public int readByte() throws IOException {
+                return in.readUnsignedByte();
+            }
+
+            @Override
+            public int readInt() throws IOException {
+                return in.readInt();
+            }
+
+            @Override
+            public String readUtf8(int length) throws IOException {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        }).read();
+    }
+
+    /**
+     * Reads an AST from the remaining bytes of a buffer, such as a
+     * memory-mapped file, and advances its position past the AST.
+     *
+     * @throws IOException if the buffer ends early, was written by another
+     *                     version, or is corrupt
+     */
+    public static AST read(ByteBuffer buffer) throws IOException {
+        try {
+            return new Reader(new Reader.Input() {
+                @Override
+                public int readByte() {
+                    return buffer.get() & 0xFF;
+                }
+
+                @Override
+                public int readInt() {
+                    return buffer.getInt();
+                }
+
+                @Override
+                public String readUtf8(int length) {
+                    String string;
+                    if (buffer.hasArray()) {
+                        string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                    } else {
+                        byte[] bytes = new byte[length];
+                        buffer.get(buffer.position(), bytes);
+                        string = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    buffer.position(buffer.position() + length);
+                    return string;
+                }
+            }).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new EOFException("AST ends early");
+        }
+    }
+
+    /**
+     * Decodes an AST from a byte array.
+     */
+    public static AST fromBytes(byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    private static final class Writer {
+
+        private final AST ast;
+        private final DataOutput out;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        Writer(AST ast, DataOutput out) {
+            this.ast = ast;
+            this.out = out;
+        }
+
+        void write() throws IOException {
+            collectStrings(ast.root);
+
+            out.writeInt(MAGIC);
+            writeVarint(FORMAT_VERSION);
+            writeVarint(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarint(bytes.length);
+                out.write(bytes);
+            }
+            writeNode(ast.root);
+        }
+
+        /**
+         * Assigns every string of the tree an index, in order of first use.
+         */
+        private void collectStrings(ASTNode node) {
+            if (node == null) {
+                return;
+            }
+            if (node.hasError()) {
+                intern(node.getError().description);
+            }
+            switch (node) {
+                case PropertyName property -> intern(property.name);
+                case VariableReference reference -> intern(reference.name);
+                case TagSelector selector -> intern(selector.tag);
+                case ClassSelector selector -> intern(selector.cls);
+                case IdSelector selector -> intern(selector.id);
+                case ColorLiteral color -> intern(color.value);
+                default -> {}
+            }
+            //Fields that childAt skips when they are null are written as NULL, not collected
+            for (int i = 0, n = node.childCount(); i < n; i++) {
+                collectStrings(node.childAt(i));
+            }
+        }
+
+        private void intern(String string) {
+            if (string != null) {
+                strings.putIfAbsent(string, strings.size());
+            }
+        }
+
+        private void writeNode(ASTNode node) throws IOException {
+            if (node == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            int error = node.hasError() ? HAS_ERROR : 0;
+            out.writeByte(tagOf(node) | error);
+            writeVarint(node.getPosition());
+            if (error != 0) {
+                writeString(node.getError().description);
+            }
+            switch (node) {
+                case StyleSheet sheet -> writeNodes(sheet.body);
+                case StyleRule rule -> {
+                    writeNodes(rule.selectors);
+                    writeNodes(rule.body);
+                }
+                case Declaration decl -> {
+                    writeNode(decl.property);
+                    writeNode(decl.expression);
+                }
+                case VariableAssignment assignment -> {
+                    writeNode(assignment.name);
+                    writeNode(assignment.expression);
+                }
+                case IfClause ifc -> {
+                    writeNode(ifc.conditionalExpression);
+                    writeNodes(ifc.body);
+                    writeNode(ifc.elseClause);
+                }
+                case ElseClause elseClause -> writeNodes(elseClause.body);
+                case PropertyName property -> writeString(property.name);
+                case VariableReference reference -> writeString(reference.name);
+                case TagSelector selector -> writeString(selector.tag);
+                case ClassSelector selector -> writeString(selector.cls);
+                case IdSelector selector -> writeString(selector.id);
+                case ColorLiteral color -> writeString(color.value);
+                case PercentageLiteral percentage -> writeSigned(percentage.value);
+                case PixelLiteral pixels -> writeSigned(pixels.value);
+                case ScalarLiteral scalar -> writeSigned(scalar.value);
+                case Operation operation -> {
+                    writeNode(operation.lhs);
+                    writeNode(operation.rhs);
+                }
+                default -> {} // booleans are told apart by their tag
+            }
+        }
+
+        private void writeNodes(List<? extends ASTNode> nodes) throws IOException {
+            writeVarint(nodes.size());
+            for (ASTNode node : nodes) {
+                writeNode(node);
+            }
+        }
+
+        private static int tagOf(ASTNode node) {
+            return switch (node) {
+                case StyleSheet _ -> STYLESHEET;
+                case StyleRule _ -> STYLE_RULE;
+                case Declaration _ -> DECLARATION;
+                case VariableAssignment _ -> VARIABLE_ASSIGNMENT;
+                case IfClause _ -> IF_CLAUSE;
+                case ElseClause _ -> ELSE_CLAUSE;
+                case PropertyName _ -> PROPERTY_NAME;
+                case VariableReference _ -> VARIABLE_REFERENCE;
+                case TagSelector _ -> TAG_SELECTOR;
+                case ClassSelector _ -> CLASS_SELECTOR;
+                case IdSelector _ -> ID_SELECTOR;
+                case BoolLiteral bool -> bool.value ? TRUE_LITERAL : FALSE_LITERAL;
+                case ColorLiteral _ -> COLOR_LITERAL;
+                case PercentageLiteral _ -> PERCENTAGE_LITERAL;
+                case PixelLiteral _ -> PIXEL_LITERAL;
+                case ScalarLiteral _ -> SCALAR_LITERAL;
+                case AddOperation _ -> ADD_OPERATION;
+                case SubtractOperation _ -> SUBTRACT_OPERATION;
+                case MultiplyOperation _ -> MULTIPLY_OPERATION;
+                default -> throw new IllegalArgumentException("Cannot serialize " + node.getClass().getName());
+            };
+        }
+
+        /**
+         * Writes a string as its index in the table plus one; zero is null.
+         */
+        private void writeString(String string) throws IOException {
+            writeVarint(string == null ? 0 : strings.get(string) + 1);
+        }
+
+        private void writeSigned(int value) throws IOException {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    private static final class Reader {
+
+        interface Input {
+            int readByte() throws IOException;
+
+            int readInt() throws IOException;
+
+            String readUtf8(int length) throws IOException;
+        }
+
+        private final Input in;
+        private String[] strings;
+
+        Reader(Input in) {
+            this.in = in;
+        }
+
+        AST read() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a serialized AST");
+            }
+            int version = readVarint();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported AST format version " + version + ", expected " + FORMAT_VERSION);
+            }
+            SymbolTable symbols = new SymbolTable();
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readVarint();
+                if (length < 0 || length > MAX_STRING_BYTES) {
+                    throw new IOException("Corrupt AST: string of " + length + " bytes");
+                }
+                strings[i] = symbols.intern(in.readUtf8(length));
+            }
+            ASTNode root = readNode();
+            if (root != null && !(root instanceof StyleSheet)) {
+                throw new IOException("Corrupt AST: root is a " + root.getNodeLabel());
+            }
+            return new AST((StyleSheet) root);
+        }
+
+        private ASTNode readNode() throws IOException {
+            int tag = in.readByte();
+            if (tag == NULL) {
+                return null;
+            }
+            int position = readVarint();
+            String error = (tag & HAS_ERROR) != 0 ? readString() : null;
+            ASTNode node = switch (tag & ~HAS_ERROR) {
+                case STYLESHEET -> new StyleSheet(readNodes(ASTNode.class));
+                case STYLE_RULE -> {
+                    StyleRule rule = new StyleRule();
+                    rule.selectors = readNodes(Selector.class);
+                    rule.body = readNodes(ASTNode.class);
+                    yield rule;
+                }
+                case DECLARATION -> {
+                    Declaration decl = new Declaration();
+                    decl.property = readNode(PropertyName.class);
+                    decl.expression = readNode(Expression.class);
+                    yield decl;
+                }
+                case VARIABLE_ASSIGNMENT -> {
+                    VariableAssignment assignment = new VariableAssignment();
+                    assignment.name = readNode(VariableReference.class);
+                    assignment.expression = readNode(Expression.class);
+                    yield assignment;
+                }
+                case IF_CLAUSE -> {
+                    IfClause ifc = new IfClause();
+                    ifc.conditionalExpression = readNode(Expression.class);
+                    ifc.body = readNodes(ASTNode.class);
+                    ifc.elseClause = readNode(ElseClause.class);
+                    yield ifc;
+                }
+                case ELSE_CLAUSE -> new ElseClause(readNodes(ASTNode.class));
+                case PROPERTY_NAME -> new PropertyName(readString());
+                case VARIABLE_REFERENCE -> new VariableReference(readString());
+                case TAG_SELECTOR -> new TagSelector(readString());
+                case CLASS_SELECTOR -> new ClassSelector(readString());
+                case ID_SELECTOR -> new IdSelector(readString());
+                case TRUE_LITERAL -> new BoolLiteral(true);
+                case FALSE_LITERAL -> new BoolLiteral(false);
+                case COLOR_LITERAL -> new ColorLiteral(readString());
+                case PERCENTAGE_LITERAL -> new PercentageLiteral(readSigned());
+                case PIXEL_LITERAL -> new PixelLiteral(readSigned());
+                case SCALAR_LITERAL -> new ScalarLiteral(readSigned());
+                case ADD_OPERATION -> readOperation(new AddOperation());
+                case SUBTRACT_OPERATION -> readOperation(new SubtractOperation());
+                case MULTIPLY_OPERATION -> readOperation(new MultiplyOperation());
+                default -> throw new IOException("Corrupt AST: unknown node tag " + tag);
+            };
+            node.setPosition(position);
+            if (error != null) {
+                node.setError(error);
+            }
+            return node;
+        }
+
+        private Operation readOperation(Operation operation) throws IOException {
+            operation.lhs = readNode(Expression.class);
+            operation.rhs = readNode(Expression.class);
+            return operation;
+        }
+
+        private <T extends ASTNode> T readNode(Class<T> type) throws IOException {
+            ASTNode node = readNode();
+            if (node != null && !type.isInstance(node)) {
+                throw new IOException("Corrupt AST: expected a " + type.getSimpleName() + ", found " + node.getNodeLabel());
+            }
+            return type.cast(node);
+        }
+
+        private <T extends ASTNode> ArrayList<T> readNodes(Class<T> type) throws IOException {
+            int count = readCount();
+            ArrayList<T> nodes = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                T node = readNode(type);
+                if (node == null) {
+                    throw new IOException("Corrupt AST: missing " + type.getSimpleName());
+                }
+                nodes.add(node);
+            }
+            return nodes;
+        }
+
+        private String readString() throws IOException {
+            int index = readVarint();
+            if (index == 0) {
+                return null;
+            }
+            if (index < 0 || index > strings.length) {
+                throw new IOException("Corrupt AST: string index " + index + " out of range");
+            }
+            return strings[index - 1];
+        }
+
+        private int readSigned() throws IOException {
+            int zigzag = readVarint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private int readCount() throws IOException {
+            int count = readVarint();
+            if (count < 0) {
+                throw new IOException("Corrupt AST: negative count");
+            }
+            return count;
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt AST: varint too long");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.scoping.ScopeManager;
+
+import java.util.List;
+
+/**
+ * Folds constant expressions to literals ahead of the {@link Evaluator}.
+ *
+ * <p>The pass:
+ * <ul>
+ *   <li>Replaces variable references whose value is known by that value, so every
+ *   variable is evaluated once however often it is used</li>
+ *   <li>Replaces operations on literals by their result, computing each distinct
+ *   operation once per stylesheet</li>
+ *   <li>Hash-conses literals: equal literals in the folded AST are one shared instance</li>
+ * </ul>
+ *
+ * <p>Variable assignments, if-clauses and their scopes are left in place, and are
+ * resolved in the same order as the evaluator does, so evaluating the folded AST
+ * gives the same result as evaluating the original. Because literals are shared,
+ * the folded AST must not be checked again, or errors may be reported on nodes
+ * that occur in several places.
+ */
+public class ConstantFolding implements Transform {
+
+    @Override
+    public void apply(AST ast) {
+        FoldingContext ctx = new FoldingContext(new ScopeManager<>());
+        ctx.scopes.inNewScope(() -> foldBody(ast.root.body, ctx));
+    }
+
+    /**
+     * Folds the expressions in a list of AST nodes in place, recursing into
+     * nested rules and both branches of if-clauses.
+     */
+    private void foldBody(List<ASTNode> body, FoldingContext ctx) {
+        for (ASTNode child : body) {
+            switch (child) {
+                case VariableAssignment va -> {
+                    va.expression = ctx.fold(va.expression);
+                    ctx.scopes.declare(va.name.name, va.expression instanceof Literal value ? value : null);
+                }
+                case Declaration decl -> decl.expression = ctx.fold(decl.expression);
+                case StyleRule rule -> ctx.scopes.inNewScope(() -> foldBody(rule.body, ctx));
+                case IfClause ifc -> {
+                    ifc.conditionalExpression = ctx.fold(ifc.conditionalExpression);
+                    ctx.scopes.inNewScope(() -> foldBody(ifc.body, ctx));
+                    if (ifc.elseClause != null) {
+                        ctx.scopes.inNewScope(() -> foldBody(ifc.elseClause.body, ctx));
+                    }
+                }
+                default -> {} // skip
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.generator.Generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Shrinks the CSS of an evaluated AST without changing what it styles. Runs
+ * after the {@link Evaluator} and before the {@link Generator}.
+ *
+ * <p>The pass:
+ * <ul>
+ *   <li>Drops declarations that a later declaration of the same property in
+ *   the same rule overrides, as flattened if-clauses often leave them</li>
+ *   <li>Merges a rule into an earlier rule with the same selectors</li>
+ *   <li>Groups the selectors of rules with the same declarations into one rule</li>
+ * </ul>
+ *
+ * <p>Merging and grouping move the declarations of a rule up to the earlier
+ * rule. That only keeps the cascade intact if no rule in between declares one
+ * of the same properties, since an element may match both. Rules for which
+ * that does not hold are left where they are. ICSS has no shorthand
+ * properties, so declarations only interact when their property is the same.</p>
+ *
+ * <p>Changed rules are replaced by new ones and the stylesheet gets a new body,
+ * so the pass also works on an AST that shares nodes with another, as made by
+ * {@link Evaluator#transform(AST)}.</p>
+ */
+public class CssOptimizer implements Transform {
+
+    private static final Generator GENERATOR = new Generator();
+
+    @Override
+    public void apply(AST ast) {
+        optimize(ast, null);
+    }
+
+    /**
+     * Optimizes an evaluated AST and records the savings.
+     *
+     * @param ast    the evaluated AST
+     * @param report the report to record the savings in, or {@code null} to skip
+     *               generating the CSS twice to measure them
+     */
+    public void optimize(AST ast, SizeReport report) {
+        long before = report == null ? 0 : cssLength(ast);
+
+        Optimization optimization = new Optimization();
+        ast.root.body = optimization.groupSameDeclarations(optimization.mergeSameSelectors(ast.root.body));
+
+        if (report != null) {
+            report.record(before, cssLength(ast), optimization.droppedDeclarations,
+                    optimization.mergedRules, optimization.groupedRules);
+        }
+    }
+
+    private static long cssLength(AST ast) {
+        CharacterCount count = new CharacterCount();
+        try {
+            GENERATOR.generate(ast, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // counting does not throw
+        }
+        return count.length;
+    }
+
+    /**
+     * The state of a single optimization.
+     */
+    private static final class Optimization {
+
+        private long droppedDeclarations = 0;
+        private long mergedRules = 0;
+        private long groupedRules = 0;
+
+        /**
+         * Drops overridden declarations and merges every rule into the last
+         * earlier rule with the same selectors, where that is safe.
+         */
+        ArrayList<ASTNode> mergeSameSelectors(List<ASTNode> body) {
+            ArrayList<ASTNode> result = new ArrayList<>(body.size());
+            Map<String, Integer> bySelectors = new HashMap<>();
+            Map<String, Integer> lastDeclared = new HashMap<>();
+
+            for (ASTNode node : body) {
+                if (!(node instanceof StyleRule original)) {
+                    result.add(node);
+                    continue;
+                }
+                StyleRule rule = withoutOverridden(original);
+                String key = selectorsOf(rule);
+                Integer earlier = bySelectors.get(key);
+                if (earlier != null && canMoveTo(rule, earlier, lastDeclared)) {
+                    StyleRule target = (StyleRule) result.get(earlier);
+                    ArrayList<ASTNode> declarations = new ArrayList<>(target.body.size() + rule.body.size());
+                    declarations.addAll(target.body);
+                    declarations.addAll(rule.body);
+                    result.set(earlier, withoutOverridden(copy(target, target.selectors, declarations)));
+                    declare(rule, earlier, lastDeclared);
+                    mergedRules++;
+                } else {
+                    bySelectors.put(key, result.size());
+                    declare(rule, result.size(), lastDeclared);
+                    result.add(rule);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Adds the selectors of every rule to the last earlier rule with the same
+         * declarations, in the same order, where that is safe.
+         */
+        ArrayList<ASTNode> groupSameDeclarations(List<ASTNode> body) {
+            ArrayList<ASTNode> result = new ArrayList<>(body.size());
+            Map<String, Integer> byDeclarations = new HashMap<>();
+            Map<String, Integer> lastDeclared = new HashMap<>();
+
+            for (ASTNode node : body) {
+                if (!(node instanceof StyleRule rule)) {
+                    result.add(node);
+                    continue;
+                }
+                String key = declarationsOf(rule);
+                Integer earlier = byDeclarations.get(key);
+                if (earlier != null && canMoveTo(rule, earlier, lastDeclared)) {
+                    StyleRule target = (StyleRule) result.get(earlier);
+                    result.set(earlier, copy(target, union(target.selectors, rule.selectors), target.body));
+                    groupedRules++;
+                } else {
+                    byDeclarations.put(key, result.size());
+                    declare(rule, result.size(), lastDeclared);
+                    result.add(rule);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the rule without the declarations overridden later in its
+         * body, or the rule itself if there are none.
+         */
+        private StyleRule withoutOverridden(StyleRule rule) {
+            Set<String> declared = new HashSet<>();
+            ArrayList<ASTNode> kept = new ArrayList<>(rule.body.size());
+            for (int i = rule.body.size() - 1; i >= 0; i--) {
+                ASTNode node = rule.body.get(i);
+                if (node instanceof Declaration decl && !declared.add(decl.property.name)) {
+                    droppedDeclarations++;
+                } else {
+                    kept.add(node);
+                }
+            }
+            if (kept.size() == rule.body.size()) {
+                return rule;
+            }
+            Collections.reverse(kept);
+            return copy(rule, rule.selectors, kept);
+        }
+
+        /**
+         * Whether the declarations of a rule can move up to the rule at the given
+         * index: no rule after that one declares any of their properties.
+         */
+        private static boolean canMoveTo(StyleRule rule, int index, Map<String, Integer> lastDeclared) {
+            for (ASTNode node : rule.body) {
+                if (node instanceof Declaration decl) {
+                    Integer last = lastDeclared.get(decl.property.name);
+                    if (last != null && last > index) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static void declare(StyleRule rule, int index, Map<String, Integer> lastDeclared) {
+            for (ASTNode node : rule.body) {
+                if (node instanceof Declaration decl) {
+                    lastDeclared.merge(decl.property.name, index, Math::max);
+                }
+            }
+        }
+
+        private static ArrayList<Selector> union(List<Selector> selectors, List<Selector> more) {
+            ArrayList<Selector> result = new ArrayList<>(selectors);
+            Set<String> present = new HashSet<>();
+            for (Selector selector : selectors) {
+                present.add(GENERATOR.selectorToString(selector));
+            }
+            for (Selector selector : more) {
+                if (present.add(GENERATOR.selectorToString(selector))) {
+                    result.add(selector);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * The selectors of a rule as they are generated, so rules with the same key
+         * have the same selectors in the CSS.
+         */
+        private static String selectorsOf(StyleRule rule) {
+            StringBuilder key = new StringBuilder();
+            for (Selector selector : rule.selectors) {
+                key.append(GENERATOR.selectorToString(selector)).append('\n');
+            }
+            return key.toString();
+        }
+
+        /**
+         * The declarations of a rule as they are generated.
+         */
+        private static String declarationsOf(StyleRule rule) {
+            StringBuilder key = new StringBuilder();
+            for (ASTNode node : rule.body) {
+                if (node instanceof Declaration decl) {
+                    key.append(GENERATOR.declarationToString(decl)).append('\n');
+                }
+            }
+            return key.toString();
+        }
+
+        /**
+         * A new rule in place of the given one. The lists are not copied, as the
+         * pass never modifies a list once it is part of a rule.
+         */
+        private static StyleRule copy(StyleRule rule, ArrayList<Selector> selectors, ArrayList<ASTNode> body) {
+            StyleRule copy = new StyleRule();
+            copy.selectors = selectors;
+            copy.body = body;
+            copy.setPosition(rule.getPosition());
+            return copy;
+        }
+    }
+
+    /**
+     * An output that only counts the characters appended to it.
+     */
+    private static final class CharacterCount implements Appendable {
+
+        private long length = 0;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            length += csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            length += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            length++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.scoping.IScopeManager;
+
+/**
+ * Mutable state of a single {@link Evaluator#apply} invocation.
+ *
+ * <p>Holds the scopes used to resolve variable references and evaluates
+ * expressions against them.</p>
+ */
+final class EvaluationContext implements ExpressionVisitor<Literal> {
+
+    /**
+     * Scope used to resolve variable references during evaluation.
+     */
+    final IScopeManager<Expression> scopes;
+
+    EvaluationContext(IScopeManager<Expression> scopes) {
+        this.scopes = scopes;
+    }
+
+    /**
+     * Evaluates an expression to a literal in the current scope.
+     */
+    Literal evaluate(Expression expr) {
+        return expr.accept(this);
+    }
+
+    /**
+     * Returns the literal unchanged (quirk of the current visitor pattern implementation).
+     */
+    @Override
+    public Literal visitLiteral(Literal literal) {
+        return literal;
+    }
+
+    @Override
+    public Literal visitMultiplyOperation(MultiplyOperation mul) {
+        return LiteralArithmetic.multiply(evaluate(mul.lhs), evaluate(mul.rhs));
+    }
+
+    @Override
+    public Literal visitSubtractOperation(SubtractOperation sub) {
+        return LiteralArithmetic.subtract(evaluate(sub.lhs), evaluate(sub.rhs));
+    }
+
+    @Override
+    public Literal visitAddOperation(AddOperation op) {
+        return LiteralArithmetic.add(evaluate(op.lhs), evaluate(op.rhs));
+    }
+
+    @Override
+    public Literal visitVariableReference(VariableReference ref) {
+        Expression lit = scopes.resolve(ref.name);
+        return (Literal) lit;
+    }
+}
@@ -2,11 +2,12 @@ package nl.han.ica.icss.transforms;
 
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.scoping.IScopeManager;
 import nl.han.ica.icss.scoping.ScopeManager;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Evaluates and simplifies an ICSS AST by resolving expressions, variables,
@@ -21,140 +22,186 @@ import java.util.List;
  * </ul>
  *
  * <p>Assumes the AST has already been type-checked and is semantically valid.
+ *
+ * <p>{@link #apply} rewrites the AST in place. {@link #transform(AST)} leaves it
+ * untouched and returns an evaluated copy that shares every subtree the
+ * evaluation does not change, so one checked AST can be evaluated again and
+ * again without parsing it anew.
+ *
+ * <p>The evaluator is stateless: all scope state lives in an
+ * {@link EvaluationContext} created per call, so a single instance can be
+ * shared between threads as long as they transform different ASTs.
  */
-public class Evaluator implements Transform, ExpressionVisitor<Literal> {
+public class Evaluator implements Transform {
+
+    /**
+     * Creates the scope manager for each evaluation.
+     */
+    private final Supplier<? extends IScopeManager<Expression>> scopeManagers;
+
+    /**
+     * Creates an evaluator that uses a {@link ScopeManager} for variable scopes.
+     */
+    public Evaluator() {
+        this(ScopeManager::new);
+    }
 
     /**
-     * Scope used to resolve variable references during evaluation.
+     * Creates an evaluator that uses scope managers from the given factory, e.g.
+     * {@code FlatScopeManager::new}. A new one is requested for every evaluation.
+     *
+     * @param scopeManagers the factory of scope managers
      */
-    private ScopeManager<Expression> scopeManager;
+    public Evaluator(Supplier<? extends IScopeManager<Expression>> scopeManagers) {
+        this.scopeManagers = scopeManagers;
+    }
 
     @Override
     public void apply(AST ast) {
-        // TODO: Refactor so the transformer is stateless
-        this.scopeManager = new ScopeManager<>();
-        transform(ast.root);
+        EvaluationContext ctx = new EvaluationContext(scopeManagers.get());
+        transform(ast.root, ctx);
+    }
+
+    /**
+     * Evaluates an AST without modifying it.
+     *
+     * <p>Nodes are only copied where evaluation changes them or their
+     * descendants: declarations whose expression is not a literal yet, and the
+     * rules and stylesheet containing them. Literals, selectors, property names
+     * and fully evaluated rules are shared with the input, so the two ASTs must
+     * not be modified afterwards, except by evaluating either of them again.</p>
+     *
+     * @param ast a checked AST, which is left as it is
+     * @return the evaluated AST
+     */
+    public AST transform(AST ast) {
+        EvaluationContext ctx = new EvaluationContext(scopeManagers.get());
+        ArrayList<ASTNode> body = new ArrayList<>();
+        ctx.scopes.inNewScope(() -> copyInto(ast.root.body, ctx, body));
+        return new AST(new StyleSheet(body));
     }
 
     /**
      * Evaluates the contents of a stylesheet in a fresh scope.
      */
-    private void transform(StyleSheet sheet) {
-        scopeManager.inNewScope(() -> transformBody(sheet.getChildren()));
+    private void transform(StyleSheet sheet, EvaluationContext ctx) {
+        ctx.scopes.inNewScope(() -> sheet.body = transformBody(sheet.body, ctx));
     }
 
     /**
-     * Evaluates and transforms a list of AST nodes in-place.
+     * Evaluates a list of AST nodes into a new list.
      *
      * <p>This method:
      * <ul>
-     *   <li>Removes variable assignments after evaluation</li>
+     *   <li>Drops variable assignments after evaluation</li>
      *   <li>Replaces declarations with evaluated literals</li>
      *   <li>Recursively evaluates nested rules and conditional blocks</li>
      * </ul>
+     *
+     * <p>The result is built in a single forward pass. Removing assignments and
+     * splicing in if-branches in place would shift the rest of the list on every
+     * change, which makes evaluation quadratic in the size of the body.</p>
      */
-    private void transformBody(List<ASTNode> body) {
-        for (int i = 0; i < body.size(); ) {
-            ASTNode child = body.get(i);
+    private ArrayList<ASTNode> transformBody(List<ASTNode> body, EvaluationContext ctx) {
+        ArrayList<ASTNode> result = new ArrayList<>(body.size());
+        transformInto(body, ctx, result);
+        return result;
+    }
 
+    /**
+     * Appends the evaluated nodes of a body to {@code result}. The chosen
+     * branch of an if-clause is appended in place of the clause.
+     */
+    private void transformInto(List<ASTNode> body, EvaluationContext ctx, ArrayList<ASTNode> result) {
+        for (ASTNode child : body) {
             switch (child) {
-                case VariableAssignment va -> {
-                    scopeManager.declare(va.name.name, evaluate(va.expression));
-                    body.remove(i);
-                }
+                case VariableAssignment va -> ctx.scopes.declare(va.name.name, ctx.evaluate(va.expression));
                 case Declaration decl -> {
-                    decl.expression = evaluate(decl.expression);
-                    i++;
+                    decl.expression = ctx.evaluate(decl.expression);
+                    result.add(decl);
                 }
                 case StyleRule rule -> {
-                    scopeManager.inNewScope(() -> transformBody(rule.body));
-                    i++;
+                    ctx.scopes.inNewScope(() -> rule.body = transformBody(rule.body, ctx));
+                    result.add(rule);
                 }
                 case IfClause ifc -> {
-                    List<ASTNode> chosenBody = resolveIfCondition(ifc);
-                    scopeManager.inNewScope(() -> transformBody(chosenBody));
-
-                    body.remove(i);
-                    if (!chosenBody.isEmpty()) {
-                        body.addAll(i, chosenBody);
-                        i += chosenBody.size();
-                    }
+                    List<ASTNode> chosenBody = resolveIfCondition(ifc, ctx);
+                    ctx.scopes.inNewScope(() -> transformInto(chosenBody, ctx, result));
                 }
-                default -> i++;
+                default -> result.add(child);
             }
         }
     }
 
     /**
-     * Selects the active branch of an if-clause based on its condition.
-     *
-     * @return the body of the active branch, or an empty list if none applies
+     * Appends the evaluated nodes of a body to {@code result} like
+     * {@link #transformInto}, but copies nodes instead of changing them.
      */
-    private List<ASTNode> resolveIfCondition(IfClause ifc) {
-        BoolLiteral condition = (BoolLiteral) evaluate(ifc.conditionalExpression);
-        if (condition.value) return ifc.body;
-        else if (ifc.elseClause != null) return ifc.elseClause.body;
-        else return new ArrayList<>();
+    private void copyInto(List<ASTNode> body, EvaluationContext ctx, ArrayList<ASTNode> result) {
+        for (ASTNode child : body) {
+            switch (child) {
+                case VariableAssignment va -> ctx.scopes.declare(va.name.name, ctx.evaluate(va.expression));
+                case Declaration decl -> result.add(copy(decl, ctx));
+                case StyleRule rule -> result.add(copy(rule, ctx));
+                case IfClause ifc -> {
+                    List<ASTNode> chosenBody = resolveIfCondition(ifc, ctx);
+                    ctx.scopes.inNewScope(() -> copyInto(chosenBody, ctx, result));
+                }
+                default -> result.add(child);
+            }
+        }
     }
 
-    private Literal evaluate(Expression expr) {
-        return expr.accept(this);
+    private Declaration copy(Declaration decl, EvaluationContext ctx) {
+        Literal value = ctx.evaluate(decl.expression);
+        if (value == decl.expression) {
+            return decl;
+        }
+        Declaration copy = new Declaration();
+        copy.property = decl.property;
+        copy.expression = value;
+        copy.setPosition(decl.getPosition());
+        return copy;
     }
 
     /**
-     * Returns the literal unchanged (quirk of the current visitor pattern implementation).
+     * Returns the rule itself if evaluating its body changes nothing, or else a
+     * new rule with the same selectors and the evaluated body.
      */
-    @Override
-    public Literal visitLiteral(Literal literal) {
-        return literal;
-    }
-
-    @Override
-    public Literal visitMultiplyOperation(MultiplyOperation mul) {
-        Literal lhs = evaluate(mul.lhs);
-        Literal rhs = evaluate(mul.rhs);
-
-        return switch (lhs) {
-            case PixelLiteral l when rhs instanceof ScalarLiteral r -> new PixelLiteral(l.value * r.value);
-            case ScalarLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value * r.value);
-            case PercentageLiteral l when rhs instanceof ScalarLiteral r -> new PercentageLiteral(l.value * r.value);
-            case ScalarLiteral l when rhs instanceof PercentageLiteral r -> new PercentageLiteral(l.value * r.value);
-            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value * r.value);
-            default -> null;
-        };
-    }
-
-    @Override
-    public Literal visitSubtractOperation(SubtractOperation sub) {
-        Literal lhs = evaluate(sub.lhs);
-        Literal rhs = evaluate(sub.rhs);
-
-        return switch (lhs) {
-            case PixelLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value - r.value);
-            case PercentageLiteral l when rhs instanceof PercentageLiteral r ->
-                    new PercentageLiteral(l.value - r.value);
-            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value - r.value);
-            default -> null;
-        };
+    private StyleRule copy(StyleRule rule, EvaluationContext ctx) {
+        ArrayList<ASTNode> body = new ArrayList<>(rule.body.size());
+        ctx.scopes.inNewScope(() -> copyInto(rule.body, ctx, body));
+        if (sameNodes(body, rule.body)) {
+            return rule;
+        }
+        StyleRule copy = new StyleRule();
+        copy.selectors = new ArrayList<>(rule.selectors);
+        copy.body = body;
+        copy.setPosition(rule.getPosition());
+        return copy;
     }
 
-    @Override
-    public Literal visitAddOperation(AddOperation op) {
-        Literal lhs = evaluate(op.lhs);
-        Literal rhs = evaluate(op.rhs);
-
-        return switch (lhs) {
-            case PixelLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value + r.value);
-            case PercentageLiteral l when rhs instanceof PercentageLiteral r ->
-                    new PercentageLiteral(l.value + r.value);
-            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value + r.value);
-            default -> null;
-        };
+    private static boolean sameNodes(List<ASTNode> a, List<ASTNode> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    @Override
-    public Literal visitVariableReference(VariableReference ref) {
-        Expression lit = scopeManager.resolve(ref.name);
-        return (Literal) lit;
+    /**
+     * Selects the active branch of an if-clause based on its condition.
+     *
+     * @return the body of the active branch, or an empty list if none applies
+     */
+    private List<ASTNode> resolveIfCondition(IfClause ifc, EvaluationContext ctx) {
+        BoolLiteral condition = (BoolLiteral) ctx.evaluate(ifc.conditionalExpression);
+        if (condition.value) return ifc.body;
+        else if (ifc.elseClause != null) return ifc.elseClause.body;
+        else return List.of();
     }
 }
@@ -0,0 +1,104 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.operations.*;
+import nl.han.ica.icss.scoping.IScopeManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+/**
+ * Mutable state of a single {@link ConstantFolding#apply} invocation.
+ *
+ * <p>Folds expressions to literals where all their operands are known, and
+ * leaves them unchanged otherwise. Besides the scopes it holds the table of
+ * canonical literals and the results of operations folded so far, so that
+ * equal subexpressions anywhere in the stylesheet are computed once and share
+ * one literal instance.</p>
+ */
+final class FoldingContext implements ExpressionVisitor<Expression> {
+
+    /**
+     * An operation on two canonical literals.
+     */
+    private record OperationKey(Class<? extends Operation> operation, Literal lhs, Literal rhs) {
+    }
+
+    /**
+     * Scope used to resolve variable references. A variable whose value could
+     * not be folded is declared as {@code null}, so it still shadows outer ones.
+     */
+    final IScopeManager<Literal> scopes;
+
+    private final Map<Literal, Literal> canonical = new HashMap<>();
+    private final Map<OperationKey, Literal> folded = new HashMap<>();
+
+    FoldingContext(IScopeManager<Literal> scopes) {
+        this.scopes = scopes;
+    }
+
+    /**
+     * Folds an expression in the current scope.
+     *
+     * @return the canonical literal the expression evaluates to, or the
+     * expression itself, with its foldable operands folded, if it cannot be folded
+     */
+    Expression fold(Expression expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    /**
+     * Returns the shared instance of literals equal to the given one.
+     */
+    Literal intern(Literal literal) {
+        Literal existing = canonical.putIfAbsent(literal, literal);
+        return existing != null ? existing : literal;
+    }
+
+    @Override
+    public Expression visitLiteral(Literal literal) {
+        return intern(literal);
+    }
+
+    @Override
+    public Expression visitAddOperation(AddOperation add) {
+        return foldOperation(add, LiteralArithmetic::add);
+    }
+
+    @Override
+    public Expression visitSubtractOperation(SubtractOperation sub) {
+        return foldOperation(sub, LiteralArithmetic::subtract);
+    }
+
+    @Override
+    public Expression visitMultiplyOperation(MultiplyOperation mul) {
+        return foldOperation(mul, LiteralArithmetic::multiply);
+    }
+
+    @Override
+    public Expression visitVariableReference(VariableReference ref) {
+        Literal value = scopes.resolve(ref.name);
+        return value != null ? value : ref;
+    }
+
+    private Expression foldOperation(Operation op, BinaryOperator<Literal> arithmetic) {
+        op.lhs = fold(op.lhs);
+        op.rhs = fold(op.rhs);
+        if (!(op.lhs instanceof Literal lhs) || !(op.rhs instanceof Literal rhs)) {
+            return op;
+        }
+
+        OperationKey key = new OperationKey(op.getClass(), lhs, rhs);
+        Literal result = folded.get(key);
+        if (result == null) {
+            result = arithmetic.apply(lhs, rhs);
+            if (result == null) {
+                return op; // operand types do not match, left for the checker to report
+            }
+            result = intern(result);
+            folded.put(key, result);
+        }
+        return result;
+    }
+}
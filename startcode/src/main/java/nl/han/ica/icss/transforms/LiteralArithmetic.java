@@ -0,0 +1,51 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+
+/**
+ * Arithmetic on literal operands, shared by the {@link Evaluator} and
+ * {@link ConstantFolding}.
+ *
+ * <p>Every operation returns a new literal, or {@code null} if the operand
+ * types cannot be combined. The checker rejects such combinations, so
+ * {@code null} only occurs for unchecked ASTs.</p>
+ */
+final class LiteralArithmetic {
+
+    private LiteralArithmetic() {
+    }
+
+    static Literal add(Literal lhs, Literal rhs) {
+        return switch (lhs) {
+            case PixelLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value + r.value);
+            case PercentageLiteral l when rhs instanceof PercentageLiteral r ->
+                    new PercentageLiteral(l.value + r.value);
+            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value + r.value);
+            default -> null;
+        };
+    }
+
+    static Literal subtract(Literal lhs, Literal rhs) {
+        return switch (lhs) {
+            case PixelLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value - r.value);
+            case PercentageLiteral l when rhs instanceof PercentageLiteral r ->
+                    new PercentageLiteral(l.value - r.value);
+            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value - r.value);
+            default -> null;
+        };
+    }
+
+    static Literal multiply(Literal lhs, Literal rhs) {
+        return switch (lhs) {
+            case PixelLiteral l when rhs instanceof ScalarLiteral r -> new PixelLiteral(l.value * r.value);
+            case ScalarLiteral l when rhs instanceof PixelLiteral r -> new PixelLiteral(l.value * r.value);
+            case PercentageLiteral l when rhs instanceof ScalarLiteral r -> new PercentageLiteral(l.value * r.value);
+            case ScalarLiteral l when rhs instanceof PercentageLiteral r -> new PercentageLiteral(l.value * r.value);
+            case ScalarLiteral l when rhs instanceof ScalarLiteral r -> new ScalarLiteral(l.value * r.value);
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package nl.han.ica.icss.transforms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what the {@link CssOptimizer} saved: the length of the generated CSS
+ * before and after optimizing, and how many declarations, rules and selectors
+ * it took out.
+ *
+ * <p>The counters can be updated from several threads at once, so one report
+ * can sum up the stylesheets of a whole batch.</p>
+ */
+public final class SizeReport {
+
+    private final AtomicLong stylesheets = new AtomicLong();
+    private final AtomicLong charactersBefore = new AtomicLong();
+    private final AtomicLong charactersAfter = new AtomicLong();
+    private final AtomicLong droppedDeclarations = new AtomicLong();
+    private final AtomicLong mergedRules = new AtomicLong();
+    private final AtomicLong groupedRules = new AtomicLong();
+
+    /**
+     * Records an optimized stylesheet.
+     *
+     * @param before              the length of its CSS before optimizing
+     * @param after               the length of its CSS after optimizing
+     * @param droppedDeclarations the number of overridden declarations dropped
+     * @param mergedRules         the number of rules merged into an earlier rule with the same selector
+     * @param groupedRules        the number of rules whose selectors joined an earlier rule with the same declarations
+     */
+    public void record(long before, long after, long droppedDeclarations, long mergedRules, long groupedRules) {
+        stylesheets.incrementAndGet();
+        charactersBefore.addAndGet(before);
+        charactersAfter.addAndGet(after);
+        this.droppedDeclarations.addAndGet(droppedDeclarations);
+        this.mergedRules.addAndGet(mergedRules);
+        this.groupedRules.addAndGet(groupedRules);
+    }
+
+    /**
+     * Number of stylesheets optimized.
+     */
+    public long getStylesheets() {
+        return stylesheets.get();
+    }
+
+    /**
+     * Total length in characters of the CSS the stylesheets would have had without optimizing.
+     */
+    public long getCharactersBefore() {
+        return charactersBefore.get();
+    }
+
+    /**
+     * Total length in characters of the optimized CSS.
+     */
+    public long getCharactersAfter() {
+        return charactersAfter.get();
+    }
+
+    public long getDroppedDeclarations() {
+        return droppedDeclarations.get();
+    }
+
+    public long getMergedRules() {
+        return mergedRules.get();
+    }
+
+    public long getGroupedRules() {
+        return groupedRules.get();
+    }
+
+    /**
+     * The share of the CSS the optimizer saved, in percent.
+     */
+    public double getSavedPercentage() {
+        long before = getCharactersBefore();
+        return before == 0 ? 0 : 100.0 * (before - getCharactersAfter()) / before;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d stylesheet(s), %d -> %d characters (%.1f%% saved), "
+                        + "%d overridden declaration(s) dropped, %d rule(s) merged, %d rule(s) grouped",
+                getStylesheets(), getCharactersBefore(), getCharactersAfter(), getSavedPercentage(),
+                getDroppedDeclarations(), getMergedRules(), getGroupedRules());
+    }
+}
@@ -0,0 +1,93 @@
+package nl.han.ica.icss;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalCompilerTest {
+
+    private static final String SHEET = """
+            LinkColor := #ff0000;
+            ParWidth := 500px;
+
+            p {
+              width: ParWidth;
+            }
+            a {
+              color: LinkColor;
+            }
+            #menu {
+              width: ParWidth + 20px;
+            }
+            """;
+
+    IncrementalCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new IncrementalCompiler();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"level0.icss", "level1.icss", "level2.icss", "level3.icss"})
+    void matches_full_compilation(String resource) throws IOException {
+        String input = read(resource);
+        assertEquals(new Pipeline().compile(input), compiler.compile(input));
+    }
+
+    @Test
+    void unchanged_input_reuses_every_rule() {
+        compiler.compile(SHEET);
+        assertEquals(3, compiler.getRecompiledRules());
+
+        CompilationResult again = compiler.compile(SHEET.replace("\n", "\n\n  "));
+        assertEquals(new Pipeline().compile(SHEET), again);
+        assertEquals(0, compiler.getRecompiledRules());
+        assertEquals(3, compiler.getReusedRules());
+    }
+
+    @Test
+    void edited_rule_is_the_only_rule_recompiled() {
+        compiler.compile(SHEET);
+
+        String edited = SHEET.replace("color: LinkColor;", "color: #00ff00;");
+        assertEquals(new Pipeline().compile(edited), compiler.compile(edited));
+        assertEquals(1, compiler.getRecompiledRules());
+    }
+
+    @Test
+    void changed_global_recompiles_exactly_its_dependents() {
+        compiler.compile(SHEET);
+
+        String edited = SHEET.replace("ParWidth := 500px;", "ParWidth := 100px;");
+        assertEquals(new Pipeline().compile(edited), compiler.compile(edited));
+        assertEquals(2, compiler.getRecompiledRules());
+        assertEquals(1, compiler.getReusedRules());
+    }
+
+    @Test
+    void errors_match_full_compilation() {
+        compiler.compile(SHEET);
+
+        String broken = SHEET.replace("width: ParWidth;", "width: Missing;");
+        assertEquals(new Pipeline().compile(broken), compiler.compile(broken));
+
+        String syntaxError = SHEET.replace("width: ParWidth;", "width ParWidth;");
+        assertEquals(new Pipeline().compile(syntaxError), compiler.compile(syntaxError));
+
+        assertEquals(new Pipeline().compile(SHEET), compiler.compile(SHEET));
+    }
+
+    private String read(String resource) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelRuleCompilerTest {
+
+    static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 7, 256})
+    void output_and_ast_match_sequential_compilation(int rulesPerChunk) {
+        assertMatchesSequential(() -> manyRules(300), new ParallelRuleCompiler(rulesPerChunk));
+    }
+
+    @Test
+    void fixtures_match_sequential_compilation() {
+        ParallelRuleCompiler compiler = new ParallelRuleCompiler(1);
+        assertMatchesSequential(Fixtures::uncheckedLevel0, compiler);
+        assertMatchesSequential(Fixtures::uncheckedLevel1, compiler);
+        assertMatchesSequential(Fixtures::uncheckedLevel2, compiler);
+        assertMatchesSequential(Fixtures::uncheckedLevel3, compiler);
+    }
+
+    @Test
+    void every_chunk_sees_all_globals() {
+        AST sheet = styleSheet(
+                varAssignment("Width", px(10)),
+                varAssignment("Wider", addition(varRef("Width"), px(1))),
+                rule("p", decl("width", varRef("Width"))),
+                rule("a", varAssignment("Width", px(20)), decl("width", varRef("Width"))),
+                rule("div", decl("width", varRef("Wider")))
+        );
+        String css = new ParallelRuleCompiler(1).transformAndGenerate(sheet, pool);
+
+        assertEquals("p {\n  width: 10px;\n}\na {\n  width: 20px;\n}\ndiv {\n  width: 11px;\n}", css);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 256})
+    void many_globals_match_sequential_compilation(int rulesPerChunk) {
+        assertMatchesSequential(() -> manyGlobals(100), new ParallelRuleCompiler(rulesPerChunk));
+    }
+
+    @Test
+    void empty_stylesheet() {
+        assertEquals("", new ParallelRuleCompiler().transformAndGenerate(styleSheet(), pool));
+    }
+
+    @Test
+    void stylesheet_of_only_globals() {
+        assertEquals("", new ParallelRuleCompiler().transformAndGenerate(styleSheet(varAssignment("A", px(1))), pool));
+    }
+
+    private static void assertMatchesSequential(Supplier<AST> stylesheet, ParallelRuleCompiler compiler) {
+        AST sequential = stylesheet.get();
+        assertTrue(new Checker().check(sequential).isEmpty());
+        new Evaluator().apply(sequential);
+        String expected = new Generator().generate(sequential);
+
+        AST parallel = stylesheet.get();
+        assertEquals(expected, compiler.transformAndGenerate(parallel, pool));
+        assertEquals(sequential, parallel);
+    }
+
+    /**
+     * Rules after two globals, using local variables, a local shadowing a
+     * global and if/else clauses.
+     */
+    private static AST manyRules(int count) {
+        List<ASTNode> nodes = new ArrayList<>();
+        nodes.add(varAssignment("Base", px(10)));
+        nodes.add(varAssignment("Flag", bool(true)));
+        for (int i = 0; i < count; i++) {
+            nodes.add(rule(i % 2 == 0 ? "p" + i : "a" + i,
+                    varAssignment("Local", multiply(varRef("Base"), scalar(2))),
+                    varAssignment("Base", addition(varRef("Base"), px(i))),
+                    decl("width", varRef("Base")),
+                    ifElseClause(i % 3 == 0 ? varRef("Flag") : bool(false),
+                            new ASTNode[]{decl("height", varRef("Local"))},
+                            new ASTNode[]{decl("color", color("#00ff00"))})));
+        }
+        return styleSheet(nodes.toArray(new ASTNode[0]));
+    }
+
+    /**
+     * Globals each declared from the one before it, and a rule using each of them.
+     */
+    private static AST manyGlobals(int count) {
+        List<ASTNode> nodes = new ArrayList<>();
+        nodes.add(varAssignment("V0", px(1)));
+        for (int i = 1; i <= count; i++) {
+            nodes.add(varAssignment("V" + i, addition(varRef("V" + (i - 1)), px(i))));
+        }
+        for (int i = 1; i <= count; i++) {
+            nodes.add(rule("p" + i,
+                    decl("width", varRef("V" + i)),
+                    varAssignment("V0", multiply(varRef("V" + i), scalar(2))),
+                    decl("height", varRef("V0"))));
+        }
+        return styleSheet(nodes.toArray(new ASTNode[0]));
+    }
+}
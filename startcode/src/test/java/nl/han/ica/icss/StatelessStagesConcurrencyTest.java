@@ -0,0 +1,115 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single shared {@link Checker} and {@link Evaluator} from a thread pool
+ * and verifies every run matches a sequential run with fresh instances.
+ */
+@DisplayName("Checker and Evaluator are safe to share between threads")
+class StatelessStagesConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int RUNS = 400;
+
+    private static final List<Supplier<AST>> VALID_FIXTURES = List.of(
+            Fixtures::uncheckedLevel0,
+            Fixtures::uncheckedLevel1,
+            Fixtures::uncheckedLevel2,
+            Fixtures::uncheckedLevel3
+    );
+
+    private static final List<Supplier<AST>> INVALID_FIXTURES = List.of(
+            () -> styleSheet(rule("p", decl("width", varRef("Undeclared")))),
+            () -> styleSheet(
+                    varAssignment("Width", px(10)),
+                    rule("p",
+                            varAssignment("Local", color("#ffffff")),
+                            decl("width", addition(varRef("Width"), varRef("Local"))),
+                            ifClause(px(1), decl("color", color("#000000"))))),
+            () -> styleSheet(
+                    varAssignment("Twice", px(1)),
+                    varAssignment("Twice", px(2)),
+                    rule("a", decl("height", multiply(px(2), px(3)))))
+    );
+
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shared_checker_reports_same_errors_as_sequential_checks() throws Exception {
+        List<Supplier<AST>> fixtures = new ArrayList<>(VALID_FIXTURES);
+        fixtures.addAll(INVALID_FIXTURES);
+
+        List<List<String>> expected = new ArrayList<>();
+        for (Supplier<AST> fixture : fixtures) {
+            expected.add(check(new Checker(), fixture.get()));
+        }
+
+        Checker shared = new Checker();
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            Supplier<AST> fixture = fixtures.get(i % fixtures.size());
+            futures.add(pool.submit(() -> check(shared, fixture.get())));
+        }
+
+        for (int i = 0; i < RUNS; i++) {
+            assertEquals(expected.get(i % fixtures.size()), futures.get(i).get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void shared_evaluator_produces_same_ast_as_sequential_evaluation() throws Exception {
+        List<AST> expected = new ArrayList<>();
+        for (Supplier<AST> fixture : VALID_FIXTURES) {
+            AST ast = fixture.get();
+            new Evaluator().apply(ast);
+            expected.add(ast);
+        }
+
+        Evaluator shared = new Evaluator();
+        List<Future<AST>> futures = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            Supplier<AST> fixture = VALID_FIXTURES.get(i % VALID_FIXTURES.size());
+            futures.add(pool.submit(() -> {
+                AST ast = fixture.get();
+                shared.apply(ast);
+                return ast;
+            }));
+        }
+
+        for (int i = 0; i < RUNS; i++) {
+            assertEquals(expected.get(i % VALID_FIXTURES.size()), futures.get(i).get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private static List<String> check(Checker checker, AST ast) {
+        checker.check(ast);
+        return ast.getErrors().stream().map(SemanticError::toString).toList();
+    }
+}
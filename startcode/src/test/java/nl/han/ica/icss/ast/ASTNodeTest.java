@@ -0,0 +1,58 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.operations.AddOperation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTNodeTest {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void indexed_children_match_getChildren(String name, Supplier<AST> fixture) {
+        assertSameChildren(fixture.get().root);
+    }
+
+    @Test
+    void optional_children_are_skipped() {
+        Declaration withoutProperty = new Declaration();
+        withoutProperty.expression = px(1);
+        assertSameChildren(withoutProperty);
+
+        AddOperation halfBuilt = new AddOperation();
+        halfBuilt.rhs = px(2);
+        assertSameChildren(halfBuilt);
+    }
+
+    @Test
+    void childAt_rejects_index_past_last_child() {
+        IfClause ifc = ifClause(bool(true), decl("width", px(1)));
+        assertEquals(2, ifc.childCount());
+        assertThrows(IndexOutOfBoundsException.class, () -> ifc.childAt(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> px(1).childAt(0));
+    }
+
+    @Test
+    void forEachChild_visits_children_in_order() {
+        StyleRule rule = rule(tag("p"), decl("width", px(1)), decl("height", px(2)));
+        List<ASTNode> visited = new ArrayList<>();
+        rule.forEachChild(visited::add);
+        assertEquals(rule.getChildren(), visited);
+    }
+
+    private static void assertSameChildren(ASTNode node) {
+        List<ASTNode> children = node.getChildren();
+        assertEquals(children.size(), node.childCount(), node.getNodeLabel());
+        for (int i = 0; i < children.size(); i++) {
+            assertSame(children.get(i), node.childAt(i), node.getNodeLabel());
+            assertSameChildren(children.get(i));
+        }
+    }
+}
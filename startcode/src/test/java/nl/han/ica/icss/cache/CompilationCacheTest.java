@@ -0,0 +1,128 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.CompilationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilationCacheTest {
+
+    private static final long LARGE = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    //Stands in for the pipeline: "error" fails, anything else compiles to its upper case
+    private final Function<String, CompilationResult> compiler = source -> {
+        compilations.incrementAndGet();
+        return source.equals("error")
+                ? CompilationResult.failed(List.of("ERROR: something is wrong"))
+                : CompilationResult.succeeded(source.toUpperCase());
+    };
+
+    @Test
+    void second_lookup_is_a_hit() {
+        CompilationCache cache = new CompilationCache(LARGE, null, compiler);
+
+        assertEquals("P {}", cache.compile("p {}").css());
+        assertEquals("P {}", cache.compile("p {}").css());
+
+        assertEquals(1, compilations.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void errors_are_cached() {
+        CompilationCache cache = new CompilationCache(LARGE, null, compiler);
+
+        CompilationResult first = cache.compile("error");
+        CompilationResult second = cache.compile("error");
+
+        assertFalse(second.isSuccessful());
+        assertEquals(first.errors(), second.errors());
+        assertEquals(1, compilations.get());
+    }
+
+    @Test
+    void different_sources_have_different_keys() {
+        assertNotEquals(CompilationCache.key("p {}"), CompilationCache.key("p { }"));
+        assertEquals(CompilationCache.key("p {}"), CompilationCache.key(new String("p {}")));
+    }
+
+    @Test
+    void least_recently_used_result_is_evicted() {
+        //Room for two results of this size, not three
+        CompilationCache cache = new CompilationCache(750, null, compiler);
+
+        cache.compile("a".repeat(50));
+        cache.compile("b".repeat(50));
+        cache.compile("a".repeat(50)); // a is now used more recently than b
+        cache.compile("c".repeat(50)); // evicts b
+
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getMemoryBytes() <= 750);
+
+        cache.compile("a".repeat(50));
+        assertEquals(3, compilations.get());
+        cache.compile("b".repeat(50));
+        assertEquals(4, compilations.get());
+    }
+
+    @Test
+    void results_larger_than_the_memory_tier_are_not_kept() {
+        CompilationCache cache = new CompilationCache(100, null, compiler);
+
+        cache.compile("x".repeat(1000));
+        cache.compile("x".repeat(1000));
+
+        assertEquals(2, compilations.get());
+        assertEquals(0, cache.getMemoryBytes());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void disk_tier_survives_a_new_cache() {
+        String large = "p { width: 1px; }".repeat(10_000);
+        new CompilationCache(LARGE, directory, compiler).compile(large);
+        new CompilationCache(LARGE, directory, compiler).compile("error");
+
+        CompilationCache restarted = new CompilationCache(LARGE, directory, compiler);
+        assertEquals(large.toUpperCase(), restarted.compile(large).css());
+        assertEquals(List.of("ERROR: something is wrong"), restarted.compile("error").errors());
+
+        assertEquals(2, compilations.get());
+        assertEquals(2, restarted.getHits());
+        assertEquals(2, restarted.getDiskHits());
+        assertEquals(0, restarted.getMisses());
+    }
+
+    @Test
+    void corrupt_file_is_a_miss_and_is_replaced() throws IOException {
+        new CompilationCache(LARGE, directory, compiler).compile("p {}");
+        Path file;
+        try (Stream<Path> files = Files.walk(directory)) {
+            file = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        Files.write(file, new byte[]{1, 2, 3});
+
+        CompilationCache restarted = new CompilationCache(LARGE, directory, compiler);
+        assertEquals("P {}", restarted.compile("p {}").css());
+        assertEquals(1, restarted.getMisses());
+
+        CompilationCache again = new CompilationCache(LARGE, directory, compiler);
+        assertEquals("P {}", again.compile("p {}").css());
+        assertEquals(1, again.getDiskHits());
+    }
+}
@@ -0,0 +1,103 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.IfClause;
+import nl.han.ica.icss.ast.SourcePosition;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.scoping.ScopeManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosticsTest {
+
+    static Stream<Arguments> stylesheets() {
+        return Stream.of(
+                Arguments.of("errors in children", (Supplier<AST>) DiagnosticsTest::errorsInChildren)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "stylesheets"})
+    void lists_the_errors_in_the_order_of_the_tree(String name, Supplier<AST> stylesheet) {
+        AST ast = stylesheet.get();
+        Diagnostics diagnostics = new Checker().check(ast);
+
+        assertEquals(ast.getErrors().toString(), diagnostics.getErrors().toString());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "stylesheets"})
+    void parallel_check_lists_the_same_errors(String name, Supplier<AST> stylesheet) {
+        Diagnostics sequential = new Checker().check(stylesheet.get());
+        Diagnostics parallel = new Checker().check(stylesheet.get(), ForkJoinPool.commonPool());
+
+        assertEquals(sequential.getErrors().toString(), parallel.getErrors().toString());
+    }
+
+    @Test
+    void errors_can_be_left_off_the_nodes() {
+        AST ast = errorsInChildren();
+        Diagnostics diagnostics = new Checker(ScopeManager::new, false).check(ast);
+
+        assertEquals(6, diagnostics.size(), diagnostics.toString());
+        assertTrue(ast.getErrors().isEmpty());
+        assertEquals(Diagnostics.of(checkedOnNodes()).getErrors().toString(), diagnostics.getErrors().toString());
+    }
+
+    @Test
+    void records_the_node_and_its_position() {
+        AST ast = styleSheet(rule("p", ifClause(varRef("Missing"), decl("width", px(10)))));
+        IfClause ifc = (IfClause) ast.root.body.getFirst().childAt(1);
+        VariableReference ref = (VariableReference) ifc.conditionalExpression;
+        ifc.setPosition(SourcePosition.of(2, 4));
+        ref.setPosition(SourcePosition.of(2, 9));
+
+        Diagnostics diagnostics = new Checker().check(ast);
+
+        assertEquals(2, diagnostics.size());
+        assertSame(ifc, diagnostics.node(0));
+        assertSame(ref, diagnostics.node(1));
+        assertEquals("2:4: If-condition must be a boolean, but got: UNDEFINED", diagnostics.toString(0));
+        assertEquals("2:9: Unknown variable 'Missing'", diagnostics.toString(1));
+    }
+
+    @Test
+    void packs_line_and_column() {
+        int position = SourcePosition.of(123_456, 78);
+
+        assertEquals(123_456, SourcePosition.line(position));
+        assertEquals(78, SourcePosition.column(position));
+        assertEquals("?", SourcePosition.toString(SourcePosition.UNKNOWN));
+        assertEquals(SourcePosition.UNKNOWN, SourcePosition.of(0, 5));
+    }
+
+    private static AST checkedOnNodes() {
+        AST ast = errorsInChildren();
+        new Checker().check(ast);
+        return ast;
+    }
+
+    /**
+     * Errors on if-clauses and variable assignments that are only found after
+     * errors in their own children.
+     */
+    private static AST errorsInChildren() {
+        return styleSheet(
+                varAssignment("Width", px(10)),
+                varAssignment("Width", varRef("Missing")),
+                rule("p",
+                        ifClause(addition(varRef("Width"), varRef("Other")), decl("color", color("#ffffff"))),
+                        decl("width", multiply(px(2), px(3)))),
+                rule("a", decl("unknown", px(1)))
+        );
+    }
+}
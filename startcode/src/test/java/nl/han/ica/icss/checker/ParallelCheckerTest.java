@@ -0,0 +1,117 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.scoping.FlatScopeManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCheckerTest {
+
+    static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    static Stream<Arguments> stylesheets() {
+        return Stream.of(
+                Arguments.of("many rules with errors", (Supplier<AST>) () -> manyRules(500))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "stylesheets"})
+    void reports_the_same_errors_as_sequential_checking(String name, Supplier<AST> stylesheet) {
+        AST sequential = stylesheet.get();
+        new Checker().check(sequential);
+        AST parallel = stylesheet.get();
+        new Checker().check(parallel, pool);
+
+        assertEquals(sequential.getErrors().toString(), parallel.getErrors().toString());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void works_with_flat_scopes() {
+        AST sequential = manyRules(200);
+        new Checker().check(sequential);
+        AST parallel = manyRules(200);
+        new Checker(FlatScopeManager::new).check(parallel, pool);
+
+        assertEquals(sequential.getErrors().toString(), parallel.getErrors().toString());
+    }
+
+    @Test
+    void rule_only_sees_globals_declared_before_it() {
+        AST ast = styleSheet(
+                rule("p", decl("width", varRef("Width"))),
+                varAssignment("Width", px(10)),
+                rule("a", decl("width", varRef("Width"))),
+                varAssignment("Width", color("#ff0000")),
+                rule("div", decl("width", varRef("Width")))
+        );
+        new Checker().check(ast, pool);
+
+        List<String> errors = ast.getErrors().stream().map(Object::toString).toList();
+        assertEquals(2, errors.size(), errors.toString());
+        assertTrue(errors.get(0).contains("Unknown variable 'Width'"));
+        assertTrue(errors.get(1).contains("redeclared"));
+    }
+
+    @Test
+    void local_variables_shadow_globals() {
+        AST ast = styleSheet(
+                varAssignment("Width", color("#ff0000")),
+                rule("p", varAssignment("Width", px(10)), decl("width", varRef("Width"))),
+                rule("a", decl("width", varRef("Width")))
+        );
+        new Checker().check(ast, pool);
+
+        assertEquals(1, ast.getErrors().size(), ast.getErrors().toString());
+    }
+
+    /**
+     * Rules interleaved with globals, with an error in every seventh rule and
+     * local variables in nested if-clauses.
+     */
+    private static AST manyRules(int count) {
+        List<ASTNode> nodes = new ArrayList<>();
+        nodes.add(varAssignment("Base", px(10)));
+        nodes.add(varAssignment("Flag", bool(true)));
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                nodes.add(varAssignment("Global" + i, scalar(i)));
+            }
+            Expression width = i % 7 == 0 ? color("#00ff00") : addition(varRef("Base"), px(i));
+            nodes.add(rule("p" + i,
+                    varAssignment("Local", multiply(varRef("Base"), scalar(2))),
+                    decl("width", width),
+                    ifClause(varRef("Flag"),
+                            varAssignment("Inner", varRef("Local")),
+                            decl("height", varRef(i % 11 == 0 ? "Missing" : "Inner"))),
+                    decl("height", multiply(varRef("Global" + (i / 50) * 50), varRef("Base")))));
+        }
+        return styleSheet(nodes.toArray(new ASTNode[0]));
+    }
+}
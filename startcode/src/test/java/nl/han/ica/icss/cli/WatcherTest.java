@@ -0,0 +1,109 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatcherTest {
+
+    private static final String SHEET = "Width := 100px;\np { width: Width; }\n";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path directory;
+
+    BlockingQueue<Watcher.Recompilation> recompilations;
+    Watcher watcher;
+    Thread thread;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        recompilations = new LinkedBlockingQueue<>();
+        watcher = new Watcher(2, Duration.ofMillis(100), recompilations::add);
+        watcher.register(directory);
+        thread = new Thread(watcher::run);
+        thread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        watcher.close();
+        thread.join();
+    }
+
+    @Test
+    void burst_of_writes_is_recompiled_once() throws Exception {
+        Path source = directory.resolve("sheet.icss");
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(source, SHEET);
+        }
+
+        Watcher.Recompilation recompilation = next();
+        assertEquals(source, recompilation.source());
+        assertTrue(recompilation.result().isSuccessful());
+        assertTrue(recompilation.written());
+        assertTrue(recompilation.latencyNanos() >= recompilation.compileNanos());
+        assertEquals(new Pipeline().compile(SHEET).css(), Files.readString(directory.resolve("sheet.css")));
+        assertNull(recompilations.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void identical_output_is_not_written_again() throws Exception {
+        Path source = directory.resolve("sheet.icss");
+        Files.writeString(source, SHEET);
+        assertTrue(next().written());
+
+        Files.writeString(source, SHEET.replace("p {", "p  {"));
+        Watcher.Recompilation recompilation = next();
+        assertTrue(recompilation.result().isSuccessful());
+        assertFalse(recompilation.written());
+    }
+
+    @Test
+    void errors_are_reported_and_leave_the_output_alone() throws Exception {
+        Path source = directory.resolve("sheet.icss");
+        Files.writeString(source, SHEET);
+        next();
+        String css = Files.readString(directory.resolve("sheet.css"));
+
+        Files.writeString(source, "p { width: Missing; }");
+        Watcher.Recompilation recompilation = next();
+        assertFalse(recompilation.result().isSuccessful());
+        assertFalse(recompilation.written());
+        assertEquals(css, Files.readString(directory.resolve("sheet.css")));
+    }
+
+    @Test
+    void sources_in_new_directories_are_watched() throws Exception {
+        Path nested = Files.createDirectories(directory.resolve("nested"));
+        Files.writeString(nested.resolve("sheet.icss"), SHEET);
+
+        assertEquals(nested.resolve("sheet.icss"), next().source());
+        Files.writeString(nested.resolve("sheet.icss"), SHEET.replace("100px", "200px"));
+        assertEquals(nested.resolve("sheet.icss"), next().source());
+    }
+
+    @Test
+    void other_files_are_ignored() throws Exception {
+        Files.writeString(directory.resolve("notes.txt"), "not a stylesheet");
+        assertNull(recompilations.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    private Watcher.Recompilation next() throws InterruptedException {
+        Watcher.Recompilation recompilation = recompilations.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(recompilation, "no recompilation reported");
+        return recompilation;
+    }
+}
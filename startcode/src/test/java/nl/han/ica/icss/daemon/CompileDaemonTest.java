@@ -0,0 +1,140 @@
+package nl.han.ica.icss.daemon;
+
+import nl.han.ica.icss.CompilationResult;
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileDaemonTest {
+
+    @TempDir
+    Path directory;
+
+    Path socket;
+    CompileDaemon daemon;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socket = directory.resolve("icss.sock");
+        daemon = CompileDaemon.start(socket, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        daemon.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"level0.icss", "level1.icss", "level2.icss", "level3.icss"})
+    void compiles_like_the_pipeline(String resource) throws IOException {
+        String source = read(resource);
+        try (DaemonClient client = DaemonClient.connect(socket)) {
+            assertEquals(new Pipeline().compile(source), client.compile(source));
+        }
+    }
+
+    @Test
+    void returns_errors() throws IOException {
+        String source = "p { width: Missing; }";
+        try (DaemonClient client = DaemonClient.connect(socket)) {
+            CompilationResult result = client.compile(source);
+            assertFalse(result.isSuccessful());
+            assertEquals(new Pipeline().compile(source).errors(), result.errors());
+        }
+    }
+
+    @Test
+    void serves_several_requests_per_connection_and_concurrent_clients() throws Exception {
+        String source = read("level3.icss");
+        CompilationResult expected = new Pipeline().compile(source);
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(clients.submit(() -> {
+                    try (DaemonClient client = DaemonClient.connect(socket)) {
+                        for (int j = 0; j < 10; j++) {
+                            assertEquals(expected, client.compile(source));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+        assertEquals(80, daemon.getRequests());
+    }
+
+    @Test
+    void refuses_a_second_daemon_on_the_same_socket() {
+        assertThrows(IOException.class, () -> CompileDaemon.start(socket, 0));
+    }
+
+    @Test
+    void replaces_a_stale_socket_file() throws IOException {
+        daemon.close();
+        Path stale = Files.createFile(directory.resolve("stale.sock"));
+
+        daemon = CompileDaemon.start(stale, 0);
+        try (DaemonClient client = DaemonClient.connect(stale)) {
+            assertTrue(client.compile("p { width: 10px; }").isSuccessful());
+        }
+    }
+
+    @Test
+    void shutdown_request_stops_the_daemon() throws Exception {
+        try (DaemonClient client = DaemonClient.connect(socket)) {
+            client.shutdown();
+        }
+        daemon.awaitStop();
+
+        assertFalse(Files.exists(socket));
+        assertNull(DaemonClient.tryConnect(socket));
+    }
+
+    @Test
+    void socket_is_only_accessible_to_its_owner() throws IOException {
+        daemon.close();
+        Path nested = directory.resolve("runtime/icss/daemon.sock");
+
+        daemon = CompileDaemon.start(nested, 0);
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(nested.getParent()));
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(nested));
+        try (DaemonClient client = DaemonClient.connect(nested)) {
+            assertNotNull(client);
+        }
+    }
+
+    @Test
+    void no_daemon_means_no_client() {
+        assertNull(DaemonClient.tryConnect(directory.resolve("missing.sock")));
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = CompileDaemonTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
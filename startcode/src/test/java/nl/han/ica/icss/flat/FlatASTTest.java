@@ -0,0 +1,131 @@
+package nl.han.ica.icss.flat;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatASTTest {
+
+    static Stream<Arguments> scopes() {
+        return Stream.of(
+                Arguments.of("if-else", (Supplier<AST>) FlatASTTest::ifElse),
+                Arguments.of("shadowed variables", (Supplier<AST>) FlatASTTest::shadowedVariables)
+        );
+    }
+
+    static Stream<Arguments> invalid() {
+        return Stream.of(
+                Arguments.of("unknown variable", (Supplier<AST>) () -> styleSheet(
+                        rule("p", decl("width", varRef("Missing"))))),
+                Arguments.of("invalid operands", (Supplier<AST>) () -> styleSheet(
+                        rule("p", decl("width", addition(px(1), percent(2))), decl("height", multiply(px(1), px(2)))))),
+                Arguments.of("wrong value type", (Supplier<AST>) () -> styleSheet(
+                        rule("p", decl("color", px(1)), decl("margin", px(1))))),
+                Arguments.of("redeclared variable", (Supplier<AST>) () -> styleSheet(
+                        varAssignment("A", px(1)), varAssignment("A", px(2)))),
+                Arguments.of("non-boolean condition", (Supplier<AST>) () -> styleSheet(
+                        rule("p", ifClause(px(1), decl("width", varRef("Missing"))))))
+        );
+    }
+
+    private static AST ifElse() {
+        return styleSheet(
+                varAssignment("Big", bool(false)),
+                varAssignment("Width", px(10)),
+                rule("p",
+                        varAssignment("Width", multiply(scalar(2), varRef("Width"))),
+                        ifElseClause(varRef("Big"),
+                                new ASTNode[]{decl("width", varRef("Width"))},
+                                new ASTNode[]{decl("width", percent(50)), ifClause(bool(true), decl("color", color("#123456")))}),
+                        decl("height", subtract(varRef("Width"), px(3))))
+        );
+    }
+
+    /**
+     * More variables than fit the initial scopes, redeclared in nested scopes
+     * that are exited again before later rules use them.
+     */
+    private static AST shadowedVariables() {
+        List<ASTNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            nodes.add(varAssignment("V" + i, px(i)));
+        }
+        nodes.add(rule("p",
+                varAssignment("V1", px(100)),
+                ifClause(bool(true),
+                        varAssignment("V2", addition(varRef("V1"), varRef("V39"))),
+                        decl("width", varRef("V2"))),
+                decl("height", varRef("V2"))));
+        nodes.add(rule("a", decl("width", varRef("V1")), decl("height", varRef("V2"))));
+        return styleSheet(nodes.toArray(new ASTNode[0]));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "scopes"})
+    void converts_to_and_from_ast_nodes(String name, Supplier<AST> fixture) {
+        AST ast = fixture.get();
+        AST converted = FlatAST.fromAST(ast).toAST();
+
+        assertEquals(ast, converted);
+        assertEquals(ast.toString(), converted.toString());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "scopes", "invalid"})
+    void checker_records_the_same_errors_on_the_same_nodes(String name, Supplier<AST> fixture) {
+        AST ast = fixture.get();
+        FlatAST flat = FlatAST.fromAST(ast);
+        new Checker().check(ast);
+        new FlatChecker().check(flat);
+
+        assertEquals(messages(ast.getErrors()), messages(flat.getErrors()));
+        assertEquals(ast.toString(), flat.toAST().toString());
+        assertEquals(messages(ast.getErrors()), messages(flat.toAST().getErrors()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "scopes"})
+    void evaluator_and_generator_give_the_same_result(String name, Supplier<AST> fixture) {
+        AST ast = fixture.get();
+        FlatAST flat = FlatAST.fromAST(ast);
+        new Evaluator().apply(ast);
+        FlatAST evaluated = new FlatEvaluator().transform(flat);
+
+        assertEquals(ast, evaluated.toAST());
+        assertEquals(new Generator().generate(ast), new FlatGenerator().generate(evaluated));
+        assertEquals(fixture.get().toString(), flat.toAST().toString());
+        assertSame(flat.strings(), evaluated.strings());
+    }
+
+    @Test
+    void subtrees_are_contiguous_ranges() {
+        FlatAST flat = FlatAST.fromAST(ifElse());
+
+        assertEquals(flat.size(), flat.end(0));
+        int rule = flat.child(0, 2);
+        assertEquals(FlatAST.STYLE_RULE, flat.kind(rule));
+        assertEquals(flat.size(), flat.end(rule));
+        assertEquals(4, flat.childCount(rule));
+        assertEquals(FlatAST.TAG_SELECTOR, flat.kind(flat.firstChild(rule)));
+        assertEquals("p", flat.string(flat.firstChild(rule)));
+        assertEquals(-1, flat.firstChild(flat.firstChild(rule)));
+    }
+
+    private static List<String> messages(List<SemanticError> errors) {
+        return errors.stream().map(SemanticError::toString).toList();
+    }
+}
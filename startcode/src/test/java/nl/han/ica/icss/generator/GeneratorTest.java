@@ -9,6 +9,11 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -177,4 +182,30 @@ class GeneratorTest {
                 }""";
         assertEquals(expected, generator.generate(ast));
     }
-}
\ No newline at end of file
+
+    static AST largeStyleSheet() {
+        AST ast = styleSheet();
+        for (int i = 0; i < 2000; i++) {
+            ast.root.addChild(rule(cls("c" + i), decl("width", px(i)), decl("color", color("#00ff00"))));
+        }
+        return ast;
+    }
+
+    @Test
+    @Tag("GE02")
+    void appendable_output_matches_string_output() throws IOException {
+        AST ast = largeStyleSheet();
+        StringWriter out = new StringWriter();
+        generator.generate(ast, out);
+        assertEquals(generator.generate(ast), out.toString());
+    }
+
+    @Test
+    @Tag("GE02")
+    void channel_output_is_utf8_of_string_output() throws IOException {
+        AST ast = largeStyleSheet();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        generator.generate(ast, Channels.newChannel(bytes));
+        assertArrayEquals(generator.generate(ast).getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+}
@@ -0,0 +1,118 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsciiByteCharStreamTest {
+
+    private static final String TEXT = "p {\n  width: 10px + Width;\n}\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reads_like_a_code_point_stream() {
+        CharStream expected = CharStreams.fromString(TEXT);
+        CharStream actual = stream(TEXT);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i <= TEXT.length(); i++) {
+            assertEquals(expected.index(), actual.index());
+            for (int la : new int[]{-2, -1, 1, 2}) {
+                assertEquals(expected.LA(la), actual.LA(la), "LA(" + la + ") at " + i);
+            }
+            if (i < TEXT.length()) {
+                expected.consume();
+                actual.consume();
+            }
+        }
+        assertEquals(IntStream.EOF, actual.LA(1));
+        assertThrows(IllegalStateException.class, actual::consume);
+    }
+
+    @Test
+    void seek_and_text() {
+        CharStream stream = stream(TEXT);
+        stream.seek(6);
+        assertEquals('w', stream.LA(1));
+        assertEquals("width", stream.getText(Interval.of(6, 10)));
+        assertEquals("", stream.getText(Interval.of(10, 9)));
+        assertEquals("}\n", stream.getText(Interval.of(TEXT.length() - 2, TEXT.length() + 5)));
+        assertEquals(TEXT, stream.toString());
+    }
+
+    @Test
+    void buffer_position_is_respected() {
+        ByteBuffer buffer = ByteBuffer.wrap(("xx" + TEXT).getBytes(StandardCharsets.US_ASCII));
+        buffer.position(2);
+        CharStream stream = new AsciiByteCharStream(buffer, "test");
+
+        assertEquals(TEXT.length(), stream.size());
+        assertEquals('p', stream.LA(1));
+        assertEquals("test", stream.getSourceName());
+    }
+
+    @Test
+    void mapped_file_lexes_to_the_same_tokens() throws IOException {
+        Path file = Files.writeString(directory.resolve("sheet.icss"), read("level3.icss"));
+
+        List<? extends Token> expected = new ICSSLexer(CharStreams.fromPath(file)).getAllTokens();
+        List<? extends Token> actual = new ICSSLexer(AsciiByteCharStream.map(file)).getAllTokens();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getType(), actual.get(i).getType());
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"level0.icss", "level1.icss", "level2.icss", "level3.icss"})
+    void parseFile_matches_parseString(String resource) throws IOException {
+        String text = read(resource);
+        Path file = Files.writeString(directory.resolve(resource), text);
+
+        Pipeline fromString = new Pipeline();
+        fromString.parseString(text);
+        Pipeline fromFile = new Pipeline();
+        fromFile.parseFile(file);
+
+        assertTrue(fromFile.isParsed());
+        assertEquals(fromString.getAST(), fromFile.getAST());
+    }
+
+    @Test
+    void empty_file() throws IOException {
+        CharStream stream = AsciiByteCharStream.map(Files.createFile(directory.resolve("empty.icss")));
+        assertEquals(0, stream.size());
+        assertEquals(IntStream.EOF, stream.LA(1));
+    }
+
+    private static CharStream stream(String text) {
+        return new AsciiByteCharStream(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), "test");
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = AsciiByteCharStreamTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
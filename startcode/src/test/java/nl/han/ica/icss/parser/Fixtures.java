@@ -12,6 +12,10 @@ import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.selectors.ClassSelector;
 import nl.han.ica.icss.ast.selectors.IdSelector;
 import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.junit.jupiter.params.provider.Arguments;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class Fixtures {
 
@@ -329,6 +333,19 @@ public class Fixtures {
         return new AST(stylesheet);
     }
 
+    /**
+     * The level fixtures as arguments for parameterized tests: a name and a
+     * supplier of a fresh AST.
+     */
+    public static Stream<Arguments> levels() {
+        return Stream.of(
+                Arguments.of("level0", (Supplier<AST>) Fixtures::uncheckedLevel0),
+                Arguments.of("level1", (Supplier<AST>) Fixtures::uncheckedLevel1),
+                Arguments.of("level2", (Supplier<AST>) Fixtures::uncheckedLevel2),
+                Arguments.of("level3", (Supplier<AST>) Fixtures::uncheckedLevel3)
+        );
+    }
+
     public static AST unchecked_VariableAdditive() {
         return ASTBuilder.styleSheet(
                 ASTBuilder.rule(
@@ -0,0 +1,88 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseTimeASTBuilderTest {
+
+    static Stream<Arguments> expressions() {
+        return Stream.of(
+                Arguments.of("variable-additive", (Supplier<AST>) Fixtures::unchecked_VariableAdditive),
+                Arguments.of("variable-reference", (Supplier<AST>) Fixtures::uncheckedVarRef),
+                Arguments.of("property-additive", (Supplier<AST>) Fixtures::uncheckedAdditive)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "expressions"})
+    void builds_the_fixture_ast(String name, Supplier<AST> fixture) throws IOException {
+        assertEquals(fixture.get(), new ParseTimeASTBuilder().build(parser(read(name + ".icss"))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource({"nl.han.ica.icss.parser.Fixtures#levels", "expressions"})
+    void builds_the_same_ast_as_the_listener(String name, Supplier<AST> fixture) throws IOException {
+        String text = read(name + ".icss");
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parser(text).stylesheet());
+
+        assertEquals(listener.getAST().toString(), new ParseTimeASTBuilder().build(parser(text)).toString());
+    }
+
+    @Test
+    void operator_precedence_and_order_are_kept() {
+        String text = "p { width: 1px + 2 * 3px - 4px * 5 + 6px; }";
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parser(text).stylesheet());
+
+        assertEquals(listener.getAST().toString(), new ParseTimeASTBuilder().build(parser(text)).toString());
+    }
+
+    @Test
+    void pipeline_parse_modes_agree() throws IOException {
+        String text = read("level3.icss");
+        Pipeline tree = new Pipeline();
+        tree.parseString(text);
+        Pipeline whileParsing = new Pipeline();
+        whileParsing.setParseMode(Pipeline.ParseMode.WHILE_PARSING);
+        whileParsing.parseString(text);
+
+        assertTrue(whileParsing.isParsed());
+        assertEquals(tree.getAST(), whileParsing.getAST());
+    }
+
+    @Test
+    void syntax_errors_are_reported_not_thrown() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setParseMode(Pipeline.ParseMode.WHILE_PARSING);
+        pipeline.parseString("p { width: 1px + ; } a { color: }");
+
+        assertFalse(pipeline.isParsed());
+        assertFalse(pipeline.getErrors().isEmpty());
+    }
+
+    private static ICSSParser parser(String text) {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ICSSLexer(CharStreams.fromString(text))));
+        parser.setErrorHandler(new BailErrorStrategy());
+        return parser;
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = ParseTimeASTBuilderTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
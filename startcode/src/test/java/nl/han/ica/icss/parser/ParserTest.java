@@ -4,12 +4,15 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.PropertyRules;
 
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.tree.*;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 class ParserTest {
 
@@ -101,4 +104,33 @@ class ParserTest {
 		AST exp = Fixtures.uncheckedAdditive();
 		assertEquals(exp,sut);
 	}
+
+	@Test
+	void testParseInternsIdentifiers() throws IOException {
+		AST sut = parseTestFile("level3.icss");
+
+		//LinkColor is assigned once and referenced three times
+		List<String> names = new ArrayList<>();
+		collectIdentifiers(sut.root, names);
+		String linkColor = null;
+		for (String name : names) {
+			if (name.equals("LinkColor")) {
+				if (linkColor == null) linkColor = name;
+				assertSame(linkColor, name);
+			}
+			if (name.equals("width")) {
+				assertSame(PropertyRules.supportedProperties().stream()
+						.filter(name::equals).findFirst().orElseThrow(), name);
+			}
+		}
+		assertNotNull(linkColor);
+	}
+
+	private static void collectIdentifiers(ASTNode node, List<String> names) {
+		if (node instanceof VariableReference ref) names.add(ref.name);
+		if (node instanceof PropertyName property) names.add(property.name);
+		for (int i = 0, n = node.childCount(); i < n; i++) {
+			collectIdentifiers(node.childAt(i), names);
+		}
+	}
 }
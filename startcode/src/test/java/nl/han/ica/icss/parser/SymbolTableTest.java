@@ -0,0 +1,28 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.checker.PropertyRules;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+    @Test
+    void equal_texts_intern_to_one_instance() {
+        SymbolTable symbols = new SymbolTable();
+        String first = symbols.intern(new String("LinkColor"));
+        String second = symbols.intern(new String("LinkColor"));
+
+        assertSame(first, second);
+        assertNotSame(first, symbols.intern("ParWidth"));
+    }
+
+    @Test
+    void property_names_intern_to_the_property_rules_keys() {
+        SymbolTable symbols = new SymbolTable();
+        for (String property : PropertyRules.supportedProperties()) {
+            assertSame(property, symbols.intern(new String(property)));
+        }
+        assertEquals(PropertyRules.supportedProperties().size(), symbols.size());
+    }
+}
@@ -0,0 +1,74 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoStageParsingTest {
+
+    private static final String INVALID = "p { width: 1px + ; } a { color: }";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"level0.icss", "level1.icss", "level2.icss", "level3.icss"})
+    void valid_input_is_parsed_by_sll_alone(String resource) throws IOException {
+        String text = read(resource);
+        ParseMetrics metrics = Pipeline.parseMetrics();
+        long parses = metrics.getParses();
+        long fallbacks = metrics.getFallbacks();
+
+        Pipeline twoStage = new Pipeline();
+        twoStage.parseString(text);
+
+        assertTrue(twoStage.isParsed());
+        assertEquals(parses + 1, metrics.getParses());
+        assertEquals(fallbacks, metrics.getFallbacks());
+        assertEquals(singleStage(text, Pipeline.ParseMode.PARSE_TREE).getAST(), twoStage.getAST());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Pipeline.ParseMode.class)
+    void invalid_input_falls_back_to_ll_with_the_same_errors(Pipeline.ParseMode mode) {
+        ParseMetrics metrics = Pipeline.parseMetrics();
+        long fallbacks = metrics.getFallbacks();
+
+        Pipeline twoStage = new Pipeline();
+        twoStage.setParseMode(mode);
+        twoStage.parseString(INVALID);
+
+        assertFalse(twoStage.isParsed());
+        assertEquals(fallbacks + 1, metrics.getFallbacks());
+        assertEquals(singleStage(INVALID, mode).getErrors(), twoStage.getErrors());
+    }
+
+    @Test
+    void lexer_errors_are_reported_once() {
+        String text = "p { width: 10px; } ~ a { color: #ff0000; }";
+
+        Pipeline twoStage = new Pipeline();
+        twoStage.parseString(text);
+
+        assertFalse(twoStage.isParsed());
+        assertEquals(singleStage(text, Pipeline.ParseMode.PARSE_TREE).getErrors(), twoStage.getErrors());
+    }
+
+    private static Pipeline singleStage(String text, Pipeline.ParseMode mode) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setTwoStageParsing(false);
+        pipeline.setParseMode(mode);
+        pipeline.parseString(text);
+        return pipeline;
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = TwoStageParsingTest.class.getClassLoader().getResourceAsStream(resource)) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.han.ica.icss.scoping;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatScopeManagerTest {
+
+    static Stream<Arguments> implementations() {
+        return Stream.of(
+                Arguments.of("ScopeManager", (Supplier<IScopeManager<String>>) ScopeManager::new),
+                Arguments.of("FlatScopeManager", (Supplier<IScopeManager<String>>) FlatScopeManager::new)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("implementations")
+    void inner_scope_shadows_outer_scope(String name, Supplier<IScopeManager<String>> factory) {
+        IScopeManager<String> scopes = factory.get();
+        scopes.enterScope();
+        scopes.declare("A", "outer");
+        scopes.declare("B", "outer");
+
+        scopes.inNewScope(() -> {
+            scopes.declare("A", "inner");
+            assertEquals("inner", scopes.resolve("A"));
+            assertEquals("outer", scopes.resolve("B"));
+        });
+
+        assertEquals("outer", scopes.resolve("A"));
+        assertNull(scopes.resolve("C"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("implementations")
+    void declare_overwrites_and_declareIfAbsent_keeps(String name, Supplier<IScopeManager<String>> factory) {
+        IScopeManager<String> scopes = factory.get();
+        scopes.enterScope();
+        scopes.declare("A", "first");
+        scopes.declare("A", "second");
+        assertEquals("second", scopes.resolve("A"));
+
+        assertFalse(scopes.declareIfAbsent("A", "third"));
+        assertEquals("second", scopes.resolve("A"));
+
+        scopes.inNewScope(() -> assertTrue(scopes.declareIfAbsent("A", "inner")));
+        assertEquals("second", scopes.resolve("A"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("implementations")
+    void null_value_shadows_outer_binding(String name, Supplier<IScopeManager<String>> factory) {
+        IScopeManager<String> scopes = factory.get();
+        scopes.enterScope();
+        scopes.declare("A", "outer");
+        scopes.inNewScope(() -> {
+            scopes.declare("A", null);
+            assertNull(scopes.resolve("A"));
+        });
+        assertEquals("outer", scopes.resolve("A"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("implementations")
+    void declareIfAbsent_replaces_a_null_value(String name, Supplier<IScopeManager<String>> factory) {
+        IScopeManager<String> scopes = factory.get();
+        scopes.enterScope();
+        scopes.declare("A", null);
+
+        assertTrue(scopes.declareIfAbsent("A", "value"));
+        assertEquals("value", scopes.resolve("A"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("implementations")
+    void misuse_is_rejected(String name, Supplier<IScopeManager<String>> factory) {
+        IScopeManager<String> scopes = factory.get();
+        assertThrows(IllegalStateException.class, scopes::exitScope);
+        assertThrows(IllegalStateException.class, () -> scopes.declare("A", "value"));
+        assertThrows(IllegalStateException.class, () -> scopes.declareIfAbsent("A", "value"));
+    }
+
+    @Test
+    void grows_beyond_initial_capacity() {
+        FlatScopeManager<Integer> scopes = new FlatScopeManager<>();
+        for (int depth = 0; depth < 100; depth++) {
+            scopes.enterScope();
+            for (int i = 0; i < 10; i++) {
+                scopes.declare("V" + i, depth * 10 + i);
+            }
+        }
+        assertEquals(Integer.valueOf(995), scopes.resolve("V5"));
+        for (int depth = 99; depth > 0; depth--) {
+            scopes.exitScope();
+        }
+        assertEquals(Integer.valueOf(5), scopes.resolve("V5"));
+    }
+
+    @Test
+    void checker_and_evaluator_give_the_same_result() {
+        Supplier<AST> fixture = Fixtures::uncheckedLevel3;
+
+        AST expected = fixture.get();
+        new Checker().check(expected);
+        new Evaluator().apply(expected);
+
+        AST actual = fixture.get();
+        new Checker(FlatScopeManager::new).check(actual);
+        new Evaluator(FlatScopeManager::new).apply(actual);
+
+        assertEquals(expected, actual);
+        assertTrue(actual.getErrors().isEmpty());
+    }
+
+    @Test
+    void checker_reports_the_same_errors() {
+        Supplier<AST> invalid = () -> styleSheet(
+                varAssignment("A", px(1)),
+                varAssignment("A", px(2)),
+                rule(tag("p"), decl("width", varRef("B")))
+        );
+
+        AST expected = invalid.get();
+        new Checker().check(expected);
+        AST actual = invalid.get();
+        new Checker(FlatScopeManager::new).check(actual);
+
+        assertFalse(actual.getErrors().isEmpty());
+        assertEquals(expected.getErrors().toString(), actual.getErrors().toString());
+    }
+}
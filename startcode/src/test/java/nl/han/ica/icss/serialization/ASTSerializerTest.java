@@ -0,0 +1,161 @@
+package nl.han.ica.icss.serialization;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTSerializerTest {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void round_trips_through_a_byte_buffer(String name, Supplier<AST> fixture) throws IOException {
+        AST ast = fixture.get();
+        AST read = ASTSerializer.fromBytes(ASTSerializer.toBytes(ast));
+
+        assertEquals(ast, read);
+        assertEquals(ast.toString(), read.toString());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void round_trips_through_a_stream(String name, Supplier<AST> fixture) throws IOException {
+        AST ast = fixture.get();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ASTSerializer.write(ast, new DataOutputStream(bytes));
+        AST read = ASTSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(ast.toString(), read.toString());
+    }
+
+    @Test
+    void keeps_literal_values_and_checker_errors() throws IOException {
+        AST ast = styleSheet(
+                varAssignment("Big", multiply(scalar(Integer.MIN_VALUE), px(Integer.MAX_VALUE))),
+                rule(cls("box"),
+                        decl("width", subtract(percent(-1), varRef("Big"))),
+                        decl("color", color("#abcdef")))
+        );
+        ((StyleRule) ast.root.body.get(1)).body.get(0).setError("Variable 'Big' used in a percentage");
+        AST read = ASTSerializer.fromBytes(ASTSerializer.toBytes(ast));
+
+        assertEquals(ast.toString(), read.toString());
+        assertEquals(1, read.getErrors().size());
+        assertEquals("ERROR: Variable 'Big' used in a percentage", read.getErrors().getFirst().toString());
+    }
+
+    @Test
+    void keeps_source_positions() throws IOException {
+        AST ast = styleSheet(rule("p", decl("width", addition(px(1), varRef("Missing")))));
+        StyleRule rule = (StyleRule) ast.root.body.getFirst();
+        Declaration decl = (Declaration) rule.body.getFirst();
+        rule.setPosition(SourcePosition.of(3, 0));
+        decl.setPosition(SourcePosition.of(4, 2));
+        decl.expression.setPosition(SourcePosition.of(4, 9));
+        AST read = ASTSerializer.fromBytes(ASTSerializer.toBytes(ast));
+
+        StyleRule readRule = (StyleRule) read.root.body.getFirst();
+        Declaration readDecl = (Declaration) readRule.body.getFirst();
+        assertEquals(SourcePosition.UNKNOWN, read.root.getPosition());
+        assertEquals(SourcePosition.of(3, 0), readRule.getPosition());
+        assertEquals(SourcePosition.of(4, 2), readDecl.getPosition());
+        assertEquals(SourcePosition.of(4, 9), readDecl.expression.getPosition());
+    }
+
+    @Test
+    void identifiers_are_stored_once_and_shared() throws IOException {
+        StyleRule first = rule(cls("a-rather-long-class-name"), decl("width", px(1)));
+        StyleRule second = rule(cls("a-rather-long-class-name"), decl("width", px(2)));
+        AST ast = styleSheet(first, second);
+        byte[] bytes = ASTSerializer.toBytes(ast);
+
+        String name = "a-rather-long-class-name";
+        assertEquals(1, occurrences(bytes, name.getBytes()));
+        AST read = ASTSerializer.fromBytes(bytes);
+        ClassSelector a = (ClassSelector) ((StyleRule) read.root.body.get(0)).selectors.getFirst();
+        ClassSelector b = (ClassSelector) ((StyleRule) read.root.body.get(1)).selectors.getFirst();
+        assertSame(a.cls, b.cls);
+    }
+
+    @Test
+    void other_versions_are_rejected() {
+        byte[] bytes = ASTSerializer.toBytes(styleSheet(rule("p", decl("width", px(1)))));
+        bytes[4] = (byte) (ASTSerializer.FORMAT_VERSION + 1);
+
+        IOException e = assertThrows(IOException.class, () -> ASTSerializer.fromBytes(bytes));
+        assertTrue(e.getMessage().contains("version"));
+    }
+
+    @Test
+    void truncated_input_is_an_io_error() {
+        byte[] bytes = ASTSerializer.toBytes(Fixtures.uncheckedLevel3());
+
+        for (int length = 0; length < bytes.length; length += 7) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> ASTSerializer.fromBytes(truncated));
+            assertThrows(IOException.class,
+                    () -> ASTSerializer.read(new DataInputStream(new ByteArrayInputStream(truncated))));
+        }
+    }
+
+    @Test
+    void pipeline_loads_a_checked_ast() throws IOException {
+        Pipeline saved = new Pipeline();
+        saved.parseString("Width := 10px; p { width: Width + 5px; }");
+        assertTrue(saved.check());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        saved.saveAST(new DataOutputStream(bytes));
+
+        Pipeline loaded = new Pipeline();
+        loaded.loadAST(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertTrue(loaded.isParsed());
+        assertTrue(loaded.isChecked());
+        saved.transform();
+        loaded.transform();
+        assertEquals(saved.generate(), loaded.generate());
+    }
+
+    @Test
+    void pipeline_refuses_to_save_errors_that_are_not_on_the_nodes() throws IOException {
+        ByteArrayOutputStream unchecked = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(unchecked);
+        out.writeBoolean(false);
+        ASTSerializer.write(styleSheet(rule("p", decl("width", varRef("Missing")))), out);
+        Pipeline pipeline = new Pipeline();
+        pipeline.loadAST(new DataInputStream(new ByteArrayInputStream(unchecked.toByteArray())));
+
+        pipeline.setErrorsOnNodes(false);
+        assertFalse(pipeline.check());
+        assertThrows(IllegalStateException.class, () -> pipeline.saveAST(new DataOutputStream(new ByteArrayOutputStream())));
+
+        pipeline.setErrorsOnNodes(true);
+        assertFalse(pipeline.check());
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        pipeline.saveAST(new DataOutputStream(saved));
+        Pipeline loaded = new Pipeline();
+        loaded.loadAST(new DataInputStream(new ByteArrayInputStream(saved.toByteArray())));
+        assertFalse(loaded.isChecked());
+        assertEquals(pipeline.getDiagnostics().getErrors().toString(), loaded.getDiagnostics().getErrors().toString());
+    }
+
+    private static int occurrences(byte[] haystack, byte[] needle) {
+        int count = 0;
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFoldingTest {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void folding_does_not_change_the_evaluated_result(String name, Supplier<AST> fixture) {
+        AST expected = fixture.get();
+        new Evaluator().apply(expected);
+
+        AST folded = fixture.get();
+        new ConstantFolding().apply(folded);
+        new Evaluator().apply(folded);
+
+        assertEquals(expected, folded);
+    }
+
+    @Test
+    void variable_is_folded_once_and_shared() {
+        AST ast = styleSheet(
+                varAssignment("Width", addition(px(10), px(20))),
+                rule(tag("p"), decl("width", varRef("Width"))),
+                rule(tag("a"), decl("width", varRef("Width")))
+        );
+        new ConstantFolding().apply(ast);
+
+        VariableAssignment assignment = (VariableAssignment) ast.root.body.get(0);
+        assertEquals(px(30), assignment.expression);
+        assertSame(assignment.expression, declarationIn(ast, 1).expression);
+        assertSame(assignment.expression, declarationIn(ast, 2).expression);
+    }
+
+    @Test
+    void equal_operations_share_one_result() {
+        AST ast = styleSheet(
+                varAssignment("Base", px(10)),
+                rule(tag("p"), decl("width", addition(varRef("Base"), px(5)))),
+                rule(tag("a"), decl("height", addition(px(10), px(5))))
+        );
+        new ConstantFolding().apply(ast);
+
+        assertEquals(px(15), declarationIn(ast, 1).expression);
+        assertSame(declarationIn(ast, 1).expression, declarationIn(ast, 2).expression);
+    }
+
+    @Test
+    void equal_literals_are_interned() {
+        AST ast = styleSheet(
+                rule(tag("p"), decl("color", color("#ffffff"))),
+                rule(tag("a"), decl("color", color("#ffffff")))
+        );
+        new ConstantFolding().apply(ast);
+
+        assertSame(declarationIn(ast, 0).expression, declarationIn(ast, 1).expression);
+    }
+
+    @Test
+    void unknown_variables_and_mismatched_operands_are_left_alone() {
+        Expression mismatched = addition(px(1), percent(1));
+        AST ast = styleSheet(
+                rule(tag("p"),
+                        decl("width", multiply(varRef("Unknown"), scalar(2))),
+                        decl("height", mismatched))
+        );
+        new ConstantFolding().apply(ast);
+
+        Expression width = declarationIn(ast, 0, 0).expression;
+        assertTrue(width instanceof MultiplyOperation);
+        assertEquals(new VariableReference("Unknown"), ((Operation) width).lhs);
+        assertSame(mismatched, declarationIn(ast, 0, 1).expression);
+    }
+
+    @Test
+    void unfoldable_variable_shadows_outer_variable() {
+        AST ast = styleSheet(
+                varAssignment("Size", px(10)),
+                rule("p",
+                        varAssignment("Size", varRef("Unknown")),
+                        decl("width", varRef("Size")))
+        );
+        new ConstantFolding().apply(ast);
+
+        assertEquals(new VariableReference("Size"), declarationIn(ast, 1, 1).expression);
+    }
+
+    private static Declaration declarationIn(AST ast, int ruleIndex) {
+        return declarationIn(ast, ruleIndex, 0);
+    }
+
+    private static Declaration declarationIn(AST ast, int ruleIndex, int index) {
+        return (Declaration) ((StyleRule) ast.root.body.get(ruleIndex)).body.get(index);
+    }
+}
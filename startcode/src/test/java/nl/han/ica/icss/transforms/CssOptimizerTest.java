@@ -0,0 +1,108 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.flat.FlatAST;
+import nl.han.ica.icss.flat.FlatGenerator;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CssOptimizerTest {
+
+    @Test
+    void drops_declarations_overridden_in_the_same_rule() {
+        AST ast = Fixtures.uncheckedLevel3();
+        new Evaluator().apply(ast);
+        new CssOptimizer().apply(ast);
+
+        String css = new Generator().generate(ast);
+        assertTrue(css.startsWith("p {\n"
+                + "  width: 500px;\n"
+                + "  color: #124532;\n"
+                + "  background-color: #000000;\n"
+                + "  height: 20px;\n"
+                + "}\n"), css);
+    }
+
+    @Test
+    void merges_rules_with_the_same_selector() {
+        AST ast = styleSheet(
+                rule("p", decl("width", px(10)), decl("color", color("#ff0000"))),
+                rule("a", decl("height", px(5))),
+                rule("p", decl("width", px(20)))
+        );
+        new CssOptimizer().apply(ast);
+
+        assertEquals("p {\n  color: #ff0000;\n  width: 20px;\n}\n"
+                + "a {\n  height: 5px;\n}", new Generator().generate(ast));
+    }
+
+    @Test
+    void keeps_rules_apart_when_a_rule_in_between_declares_the_same_property() {
+        AST ast = styleSheet(
+                rule("p", decl("color", color("#ff0000"))),
+                rule("a", decl("color", color("#00ff00"))),
+                rule("p", decl("color", color("#0000ff"))),
+                rule("a", decl("color", color("#ff0000")))
+        );
+        String css = new Generator().generate(ast);
+        new CssOptimizer().apply(ast);
+
+        assertEquals(css, new Generator().generate(ast));
+    }
+
+    @Test
+    void groups_selectors_of_rules_with_the_same_declarations() {
+        AST ast = styleSheet(
+                rule("p", decl("width", px(10)), decl("color", color("#ff0000"))),
+                rule("a", decl("height", px(5))),
+                rule("div", decl("width", px(10)), decl("color", color("#ff0000")))
+        );
+        new CssOptimizer().apply(ast);
+
+        String expected = "p, div {\n  width: 10px;\n  color: #ff0000;\n}\n"
+                + "a {\n  height: 5px;\n}";
+        assertEquals(expected, new Generator().generate(ast));
+        assertEquals(expected, new FlatGenerator().generate(FlatAST.fromAST(ast)));
+    }
+
+    @Test
+    void leaves_a_shared_evaluated_ast_untouched() {
+        AST checked = styleSheet(
+                rule("p", decl("width", px(10)), decl("width", px(20))),
+                rule("p", decl("color", color("#ff0000"))),
+                rule("a", decl("color", color("#ff0000")))
+        );
+        AST evaluated = new Evaluator().transform(checked);
+        String css = new Generator().generate(evaluated);
+
+        new CssOptimizer().apply(evaluated);
+
+        assertEquals(css, new Generator().generate(checked));
+        assertEquals("p {\n  width: 20px;\n  color: #ff0000;\n}\n"
+                + "a {\n  color: #ff0000;\n}", new Generator().generate(evaluated));
+    }
+
+    @Test
+    void reports_the_savings() {
+        AST ast = styleSheet(
+                rule("p", decl("width", px(10)), decl("width", px(20))),
+                rule("p", decl("height", px(5))),
+                rule("a", decl("width", px(20)), decl("height", px(5)))
+        );
+        long before = new Generator().generate(ast).length();
+        SizeReport report = new SizeReport();
+        new CssOptimizer().optimize(ast, report);
+
+        assertEquals(1, report.getStylesheets());
+        assertEquals(before, report.getCharactersBefore());
+        assertEquals(new Generator().generate(ast).length(), report.getCharactersAfter());
+        assertEquals(1, report.getDroppedDeclarations());
+        assertEquals(1, report.getMergedRules());
+        assertEquals(1, report.getGroupedRules());
+        assertTrue(report.getSavedPercentage() > 0, report.toString());
+    }
+}
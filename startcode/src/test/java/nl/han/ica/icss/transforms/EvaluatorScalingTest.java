@@ -0,0 +1,123 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorScalingTest {
+
+    /**
+     * A rule whose body repeats an assignment, an if-clause and a declaration,
+     * so every third child is removed and every third one is replaced by its branch.
+     */
+    private static AST body(int children) {
+        ArrayList<ASTNode> nodes = new ArrayList<>(children);
+        for (int i = 0; i < children; i++) {
+            nodes.add(switch (i % 3) {
+                case 0 -> varAssignment("Width", px(i));
+                case 1 -> ifClause(bool(true), decl("width", varRef("Width")));
+                default -> decl("height", px(i));
+            });
+        }
+        return styleSheet(rule("p", nodes.toArray(new ASTNode[0])));
+    }
+
+    @Test
+    void branches_are_spliced_in_order() {
+        AST ast = body(30_000);
+        new Evaluator().apply(ast);
+
+        StyleRule rule = (StyleRule) ast.root.body.getFirst();
+        assertEquals(20_000, rule.body.size());
+        for (int i = 0; i < rule.body.size(); i += 2) {
+            Declaration width = (Declaration) rule.body.get(i);
+            Declaration height = (Declaration) rule.body.get(i + 1);
+            assertEquals(new PixelLiteral(i / 2 * 3), width.expression);
+            assertEquals(new PixelLiteral(i / 2 * 3 + 2), height.expression);
+        }
+    }
+
+    @Test
+    void evaluation_never_shifts_the_body() {
+        AST ast = body(30_000);
+        StyleRule rule = (StyleRule) ast.root.body.getFirst();
+        List<UnshiftedList<ASTNode>> bodies = new ArrayList<>();
+        rule.body = watch(rule.body, bodies);
+        for (ASTNode child : rule.body) {
+            if (child instanceof IfClause ifc) {
+                ifc.body = watch(ifc.body, bodies);
+            }
+        }
+
+        new Evaluator().apply(ast);
+
+        //Every removal or insertion before the end moves the rest of the list,
+        //which makes evaluation quadratic in the size of the body
+        for (UnshiftedList<ASTNode> body : bodies) {
+            assertEquals(0, body.shifts);
+        }
+        assertEquals(20_000, ((StyleRule) ast.root.body.getFirst()).body.size());
+    }
+
+    private static UnshiftedList<ASTNode> watch(List<ASTNode> body, List<UnshiftedList<ASTNode>> bodies) {
+        UnshiftedList<ASTNode> watched = new UnshiftedList<>(body);
+        bodies.add(watched);
+        return watched;
+    }
+
+    /**
+     * A list that counts the operations that shift its elements.
+     */
+    private static final class UnshiftedList<E> extends ArrayList<E> {
+
+        int shifts = 0;
+
+        UnshiftedList(List<E> elements) {
+            super(elements);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            shifts++;
+            super.add(index, element);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends E> elements) {
+            shifts++;
+            return super.addAll(index, elements);
+        }
+
+        @Override
+        public E remove(int index) {
+            shifts++;
+            return super.remove(index);
+        }
+
+        @Override
+        public boolean remove(Object element) {
+            shifts++;
+            return super.remove(element);
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super E> filter) {
+            shifts++;
+            return super.removeIf(filter);
+        }
+
+        @Override
+        protected void removeRange(int from, int to) {
+            shifts++;
+            super.removeRange(from, to);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.function.Supplier;
+
+import static nl.han.ica.icss.ASTBuilder.ASTBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonDestructiveEvaluatorTest {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void gives_the_same_result_as_evaluating_in_place(String name, Supplier<AST> fixture) {
+        AST expected = fixture.get();
+        new Evaluator().apply(expected);
+
+        assertEquals(expected, new Evaluator().transform(fixture.get()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("nl.han.ica.icss.parser.Fixtures#levels")
+    void leaves_the_input_untouched(String name, Supplier<AST> fixture) {
+        AST input = fixture.get();
+        Evaluator evaluator = new Evaluator();
+        AST first = evaluator.transform(input);
+        AST second = evaluator.transform(input);
+
+        assertEquals(fixture.get(), input);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void unchanged_subtrees_are_shared() {
+        AST input = styleSheet(
+                varAssignment("Width", px(10)),
+                rule("p", decl("color", color("#ff0000"))),
+                rule("a", decl("color", color("#00ff00")), decl("width", varRef("Width")))
+        );
+        AST result = new Evaluator().transform(input);
+
+        StyleRule literalRule = (StyleRule) input.root.body.get(1);
+        StyleRule evaluatedRule = (StyleRule) input.root.body.get(2);
+        assertSame(literalRule, result.root.body.get(0));
+
+        StyleRule copy = (StyleRule) result.root.body.get(1);
+        assertNotSame(evaluatedRule, copy);
+        assertSame(evaluatedRule.selectors.getFirst(), copy.selectors.getFirst());
+        assertSame(evaluatedRule.body.get(0), copy.body.get(0));
+        assertNotSame(evaluatedRule.body.get(1), copy.body.get(1));
+        assertEquals(px(10), ((Declaration) copy.body.get(1)).expression);
+    }
+
+    @Test
+    void copies_keep_source_positions() {
+        AST input = styleSheet(rule("p", decl("width", addition(px(1), px(2)))));
+        StyleRule rule = (StyleRule) input.root.body.getFirst();
+        rule.setPosition(SourcePosition.of(3, 1));
+        rule.body.getFirst().setPosition(SourcePosition.of(4, 5));
+
+        StyleRule copy = (StyleRule) new Evaluator().transform(input).root.body.getFirst();
+
+        assertNotSame(rule, copy);
+        assertEquals(rule.getPosition(), copy.getPosition());
+        assertEquals(rule.body.getFirst().getPosition(), copy.body.getFirst().getPosition());
+    }
+
+    @Test
+    void pipeline_transforms_again_from_the_checked_ast() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setNonDestructiveTransform(true);
+        pipeline.parseString("Width := 10px; p { width: Width + 5px; if[TRUE] { height: Width; } }");
+        assertTrue(pipeline.check());
+        AST checked = pipeline.getAST();
+
+        pipeline.transform();
+        String css = pipeline.generate();
+        pipeline.transform();
+
+        assertNotSame(checked, pipeline.getAST());
+        assertEquals(css, pipeline.generate());
+        assertTrue(pipeline.check());
+        assertSame(checked, pipeline.getAST());
+    }
+}